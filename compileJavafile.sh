@@ -1 +1,21 @@
-javac -encoding UTF-8 -d out src/rubikscube/*.java     
\ No newline at end of file
+#!/usr/bin/env bash
+
+# 编译到 out/，再用 TableGenerator 把预计算表写到 out/rubikscube/tables
+# 上次完整生成之后源码没有改动时跳过生成；TableGenerator 本身也只重建缺失或版本不符的表
+# 用法：bash compileJavafile.sh [--skip-korf]
+
+TABLES=out/rubikscube/tables
+STAMP=out/.tables-generated
+
+javac -encoding UTF-8 -d out src/rubikscube/*.java || exit 1
+
+if [ -f "$STAMP" ] && [ -z "$(find src/rubikscube -name '*.java' -newer "$STAMP")" ]; then
+    echo "Tables up to date in $TABLES"
+    exit 0
+fi
+
+java -Drubikscube.tables=$TABLES -cp out rubikscube.TableGenerator "$@" || exit 1
+# --skip-korf 只生成了一部分表，不记为最新
+if [ $# -eq 0 ]; then
+    touch "$STAMP"
+fi
@@ -0,0 +1,38 @@
+#!/usr/bin/env bash
+
+# IDA* 必须给出最优解：对每个 --heuristic 检查解的步数等于已知的最优步数
+# 用法：bash optimal_tests.sh（先运行 compileJavafile.sh）
+
+# 打乱编号 → 最优步数（半转计一步）
+declare -A OPTIMAL=(
+    [01]=4 [03]=6 [16]=5 [17]=7 [18]=7 [19]=7 [22]=6 [29]=8
+)
+HEURISTICS=(default corners korf)
+ENGINES=(ida parallel-ida)
+
+PASSED=0
+TOTAL=0
+
+for num in $(printf "%s\n" "${!OPTIMAL[@]}" | sort); do
+    file="testcases/scramble$num.txt"
+    expected=${OPTIMAL[$num]}
+    for engine in "${ENGINES[@]}"; do
+        for heuristic in "${HEURISTICS[@]}"; do
+            TOTAL=$((TOTAL + 1))
+            OUTPUT=$(java -cp out rubikscube.Solver --engine=$engine --heuristic=$heuristic "$file" solution01.txt)
+            # 步数取自 "Search stats" 行的 length
+            LENGTH=$(echo "$OUTPUT" | grep -oE '"length": [0-9]+' | grep -oE '[0-9]+')
+            if [ "$LENGTH" = "$expected" ]; then
+                PASSED=$((PASSED + 1))
+                echo "✅ PASSED: $file $engine $heuristic ($LENGTH moves)"
+            else
+                echo "❌ FAILED: $file $engine $heuristic: ${LENGTH:-no solution}, optimal is $expected"
+            fi
+        done
+    done
+done
+
+echo "--------------------------------"
+echo "Optimal tests passed: $PASSED / $TOTAL"
+echo "--------------------------------"
+[ "$PASSED" -eq "$TOTAL" ]
@@ -0,0 +1,308 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves many scramble files in one JVM. The tables are loaded once before
+ * the first solve, then the files are solved concurrently on a fixed pool and
+ * one row per file (solution, length, nodes expanded and generated, wall
+ * time) is written as CSV or JSON, in input order. Engines that expand no
+ * nodes (Thistlethwaite, two-phase) report 0.
+ *
+ * usage: java rubikscube.BatchSolver [--threads=N]
+ * [--engine=astar|ida|twophase|thistlethwaite] [--heuristic=...]
+ * [--max-length=N] [--format=csv|json] [--output=FILE] [--verbose]
+ * directory|glob|file ...
+ */
+public class BatchSolver {
+    // heuristic calls before the first solve, enough for the JIT to compile them
+    private static final int WARM_UP_CALLS = 20_000;
+
+    private static final String USAGE = "usage: java rubikscube.BatchSolver [--threads=N]"
+            + " [--engine=astar|ida|twophase|thistlethwaite] [--heuristic=default|corners|korf] [--max-length=N]"
+            + " [--format=csv|json] [--output=FILE] [--verbose] directory|glob|file ...";
+
+    /**
+     * Outcome for one input file
+     */
+    static class Row {
+        final String file;
+        final String solution;
+        final int length;
+        final long expanded;
+        final long generated;
+        final long millis;
+        final String error;
+
+        Row(String file, String solution, SearchStats stats, long millis, String error) {
+            this.file = file;
+            this.solution = solution;
+            this.length = solution == null ? 0 : moveCount(solution);
+            this.expanded = stats.expanded;
+            this.generated = stats.generated;
+            this.millis = millis;
+            this.error = error;
+        }
+
+        String status() {
+            return this.solution != null ? "solved" : "failed";
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        int threads = Runtime.getRuntime().availableProcessors();
+        String engine = "astar";
+        int maxLength = TwoPhaseSolver.DEFAULT_MAX_LENGTH;
+        String format = null;
+        String output = null;
+        boolean verbose = false;
+        List<String> patterns = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--engine=")) {
+                engine = arg.substring("--engine=".length());
+            } else if (arg.startsWith("--max-length=")) {
+                maxLength = Integer.parseInt(arg.substring("--max-length=".length()));
+            } else if (arg.startsWith("--heuristic=")) {
+                String name = arg.substring("--heuristic=".length());
+                if (!Solver.selectHeuristic(name)) {
+                    System.out.println("Unknown heuristic: " + name);
+                    return;
+                }
+            } else if (arg.startsWith("--format=")) {
+                format = arg.substring("--format=".length());
+            } else if (arg.startsWith("--output=")) {
+                output = arg.substring("--output=".length());
+            } else if (arg.equals("--verbose")) {
+                verbose = true;
+            } else if (arg.startsWith("--")) {
+                System.out.println(USAGE);
+                return;
+            } else {
+                patterns.add(arg);
+            }
+        }
+        if (format == null) {
+            format = output != null && output.endsWith(".json") ? "json" : "csv";
+        }
+        if (patterns.isEmpty() || !(format.equals("csv") || format.equals("json"))) {
+            System.out.println(USAGE);
+            return;
+        }
+        List<Path> files;
+        try {
+            files = inputFiles(patterns);
+        } catch (IOException e) {
+            System.out.println("Error listing input files: " + e.getMessage());
+            return;
+        }
+        if (files.isEmpty()) {
+            System.out.println("No input files match " + patterns);
+            return;
+        }
+
+        long warmStart = System.currentTimeMillis();
+        warmUp(engine);
+        System.out.println("Tables loaded in " + (System.currentTimeMillis() - warmStart) + " milliseconds");
+
+        // the engines' progress lines go to log, kept off the report unless --verbose
+        PrintStream log = verbose ? System.out : new PrintStream(OutputStream.nullOutputStream());
+        List<Row> rows = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Row>> futures = new ArrayList<>();
+            for (Path file : files) {
+                String name = file.toString();
+                String engineName = engine;
+                int length = maxLength;
+                futures.add(pool.submit(() -> solve(name, engineName, length, log)));
+            }
+            for (Future<Row> future : futures) {
+                Row row = future.get();
+                rows.add(row);
+                System.out.println(row.status() + " " + row.file + ": " + row.length + " moves, " + row.expanded
+                        + " expanded, " + row.generated + " generated, " + row.millis + " ms"
+                        + (row.error == null ? "" : " (" + row.error + ")"));
+            }
+        } catch (ExecutionException e) {
+            System.out.println("Batch aborted: " + e.getCause());
+            return;
+        } finally {
+            pool.shutdown();
+        }
+
+        String report = format.equals("json") ? toJson(rows) : toCsv(rows);
+        if (output == null) {
+            System.out.print(report);
+        } else {
+            try {
+                Files.write(Paths.get(output), report.getBytes(StandardCharsets.UTF_8));
+                System.out.println("Report written to " + output);
+            } catch (IOException e) {
+                System.out.println("Could not write " + output + ": " + e.getMessage());
+            }
+        }
+        int solved = 0;
+        long solveMillis = 0;
+        for (Row row : rows) {
+            solved += row.solution != null ? 1 : 0;
+            solveMillis += row.millis;
+        }
+        System.out.println("Solved " + solved + " / " + rows.size() + " on " + threads + " threads, "
+                + solveMillis + " ms of solving in " + (System.currentTimeMillis() - startTime)
+                + " milliseconds wall time");
+    }
+
+    /**
+     * Expands each argument: a directory gives its regular files, a name with
+     * glob characters in its last component gives the matching files of its
+     * directory, anything else is taken as a file name
+     */
+    static List<Path> inputFiles(List<String> patterns) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String pattern : patterns) {
+            Path path = Paths.get(pattern);
+            String glob = path.getFileName() == null ? null : path.getFileName().toString();
+            if (Files.isDirectory(path)) {
+                files.addAll(list(path, "*"));
+            } else if (glob != null && glob.matches(".*[*?\\[{].*")) {
+                Path dir = path.getParent() == null ? Paths.get(".") : path.getParent();
+                files.addAll(list(dir, glob));
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    private static List<Path> list(Path dir, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Loads every table the engine and heuristic touch and runs the heuristic
+     * until it is compiled, so no solve pays for either and the workers share
+     * one copy of the tables
+     */
+    private static void warmUp(String engine) {
+        PatternDatabase.initialize();
+        // a random walk away from solved, so the heuristic does not stop early
+        // at isSolved or inside the pattern database ball
+        Random random = new Random(1);
+        RubiksCube cube = new RubiksCube();
+        for (int i = 0; i < WARM_UP_CALLS; i++) {
+            cube.applyMove(random.nextInt(RubiksCube.MOVE_COUNT));
+            Solver.heuristic.applyAsInt(cube);
+        }
+        if (engine.equals("twophase")) {
+            new TwoPhaseSolver();
+        }
+        if (engine.equals("astar") || engine.equals("thistlethwaite")) {
+            new ThistlethwaiteSolver();
+        }
+    }
+
+    private static Row solve(String file, String engine, int maxLength, PrintStream log) {
+        long start = System.currentTimeMillis();
+        SearchStats stats = new SearchStats();
+        try {
+            RubiksCube cube = new RubiksCube(file);
+            Solver.Result result = Solver.solveWith(engine, cube, maxLength, stats, log);
+            long millis = System.currentTimeMillis() - start;
+            if (result == null) {
+                return new Row(file, null, stats, millis, "Unknown engine: " + engine);
+            }
+            return new Row(file, result.solution, stats, millis, result.failure);
+        } catch (IOException e) {
+            return new Row(file, null, stats, System.currentTimeMillis() - start, "Error reading file");
+        } catch (IncorrectFormatException e) {
+            return new Row(file, null, stats, System.currentTimeMillis() - start,
+                    "Error in file format: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of face turns in a |-separated solution
+     */
+    static int moveCount(String solution) {
+        int count = 0;
+        for (String move : solution.split("\\|")) {
+            if (!move.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static String toCsv(List<Row> rows) {
+        StringBuilder sb = new StringBuilder("file,status,length,expanded,generated,millis,solution,error\n");
+        for (Row row : rows) {
+            sb.append(csv(row.file)).append(',').append(row.status()).append(',').append(row.length).append(',')
+                    .append(row.expanded).append(',').append(row.generated).append(',').append(row.millis).append(',')
+                    .append(row.solution == null ? "" : row.solution.replaceAll("\\|", "")).append(',')
+                    .append(row.error == null ? "" : csv(row.error)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String toJson(List<Row> rows) {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            sb.append("  {\"file\": ").append(json(row.file)).append(", \"status\": \"").append(row.status())
+                    .append("\", \"length\": ").append(row.length).append(", \"expanded\": ").append(row.expanded)
+                    .append(", \"generated\": ").append(row.generated).append(", \"millis\": ").append(row.millis).append(", \"solution\": ")
+                    .append(row.solution == null ? "null" : json(row.solution.replaceAll("\\|", "")))
+                    .append(", \"error\": ").append(row.error == null ? "null" : json(row.error)).append('}')
+                    .append(i + 1 < rows.size() ? ",\n" : "\n");
+        }
+        return sb.append("]\n").toString();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,413 @@
+package rubikscube;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark harness for the cube primitives (RubiksCube and BitboardCube side
+ * by side), the heuristics, the pattern database and whole solves, run the
+ * way JMH runs benchmarks. Each benchmark gets its own fresh JVMs (forks).
+ * Warm-up iterations are thrown away, then the timed iterations of all forks
+ * are reported as mean and 99.9% confidence interval (Student's t). Two runs
+ * differ when their intervals do not overlap.
+ *
+ * Fast operations are measured as average time (ns/op over a fixed time slice
+ * per iteration); initialization and solves as single shots (one invocation
+ * per iteration, ms/op).
+ *
+ * usage: java -cp out rubikscube.Benchmarks [--list] [--filter=REGEX]
+ * [--forks=N] [--warmup=N] [--iterations=N] [--time=MS] [--engine=E]
+ * [--heuristic=H] [--files=GLOB]
+ */
+public class Benchmarks {
+    private static final String USAGE = "usage: java rubikscube.Benchmarks [--list] [--filter=REGEX] [--forks=N]"
+            + " [--warmup=N] [--iterations=N] [--time=MS] [--engine=astar|ida|twophase|thistlethwaite]"
+            + " [--heuristic=default|corners|korf] [--files=GLOB]";
+
+    // a fixed scramble of 34 quarter turns, far outside the pattern database
+    private static final String SCRAMBLE = "RUFFLDDBRRUUULFBBDRRRLUUFDDLBBBRFU";
+    // three quarter turns from solved, inside the pattern database
+    private static final String NEAR_SOLVED = "RUF";
+
+    // two-sided 99.9% quantiles of Student's t for 1..30 degrees of freedom
+    private static final double[] T_999 = { 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781,
+            4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850, 3.819, 3.792, 3.768,
+            3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646 };
+
+    // results are folded in here so the JIT cannot drop the measured work
+    private static volatile long sink;
+
+    private int forks = 2;
+    private int warmup = 5;
+    private int iterations = 10;
+    private long timeMillis = 500;
+    private String filter = ".*";
+    private String engine = "astar";
+    private String heuristic = null;
+    private String files = "testcases/scramble*.txt";
+
+    /**
+     * One benchmark; setup runs once per fork, beforeEach before every timed
+     * single-shot invocation
+     */
+    private static final class Benchmark {
+        final String name;
+        final boolean singleShot;
+        final Runnable setup;
+        final Runnable beforeEach;
+        final LongSupplier body;
+
+        Benchmark(String name, boolean singleShot, Runnable setup, Runnable beforeEach, LongSupplier body) {
+            this.name = name;
+            this.singleShot = singleShot;
+            this.setup = setup;
+            this.beforeEach = beforeEach;
+            this.body = body;
+        }
+
+        String unit() {
+            return this.singleShot ? "ms/op" : "ns/op";
+        }
+    }
+
+    public static void main(String[] args) {
+        Benchmarks harness = new Benchmarks();
+        String run = null;
+        boolean list = false;
+        for (String arg : args) {
+            if (arg.startsWith("--forks=")) {
+                harness.forks = Integer.parseInt(arg.substring("--forks=".length()));
+            } else if (arg.startsWith("--warmup=")) {
+                harness.warmup = Integer.parseInt(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--iterations=")) {
+                harness.iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else if (arg.startsWith("--time=")) {
+                harness.timeMillis = Long.parseLong(arg.substring("--time=".length()));
+            } else if (arg.startsWith("--filter=")) {
+                harness.filter = arg.substring("--filter=".length());
+            } else if (arg.startsWith("--engine=")) {
+                harness.engine = arg.substring("--engine=".length());
+            } else if (arg.startsWith("--heuristic=")) {
+                harness.heuristic = arg.substring("--heuristic=".length());
+            } else if (arg.startsWith("--files=")) {
+                harness.files = arg.substring("--files=".length());
+            } else if (arg.startsWith("--run=")) {
+                // internal: measure one benchmark in this JVM and print its scores
+                run = arg.substring("--run=".length());
+            } else if (arg.equals("--list")) {
+                list = true;
+            } else {
+                System.out.println(USAGE);
+                return;
+            }
+        }
+        if (harness.heuristic != null && !Solver.selectHeuristic(harness.heuristic)) {
+            System.out.println("Unknown heuristic: " + harness.heuristic);
+            return;
+        }
+        Map<String, Benchmark> benchmarks = harness.benchmarks();
+        if (run != null) {
+            harness.runFork(benchmarks.get(run));
+            return;
+        }
+        Pattern pattern = Pattern.compile(harness.filter);
+        List<Benchmark> selected = new ArrayList<>();
+        for (Benchmark benchmark : benchmarks.values()) {
+            if (pattern.matcher(benchmark.name).find()) {
+                selected.add(benchmark);
+            }
+        }
+        if (list) {
+            for (Benchmark benchmark : selected) {
+                System.out.println(benchmark.name);
+            }
+            return;
+        }
+        harness.runAll(selected);
+    }
+
+    private Map<String, Benchmark> benchmarks() {
+        Map<String, Benchmark> benchmarks = new LinkedHashMap<>();
+        RubiksCube scrambled = new RubiksCube();
+        scrambled.applyMoves(SCRAMBLE);
+        RubiksCube nearSolved = new RubiksCube();
+        nearSolved.applyMoves(NEAR_SOLVED);
+
+        for (String move : RubiksCube.MOVE_NAMES) {
+            RubiksCube cube = scrambled.deepClone();
+            average(benchmarks, "RubiksCube.applyMoves." + move, () -> {
+                cube.applyMoves(move);
+                return cube.stateKey();
+            });
+        }
+        average(benchmarks, "RubiksCube.deepClone", () -> scrambled.deepClone().stateKey());
+        average(benchmarks, "RubiksCube.toString", () -> scrambled.toString().length());
+        average(benchmarks, "RubiksCube.isSolved", () -> scrambled.isSolved() ? 1 : 0);
+
+        // the same operations on the bitboard engine, for a side-by-side comparison
+        BitboardCube bitboard = new BitboardCube(scrambled);
+        for (String move : RubiksCube.MOVE_NAMES) {
+            BitboardCube cube = bitboard.deepClone();
+            average(benchmarks, "BitboardCube.applyMoves." + move, () -> {
+                cube.applyMoves(move);
+                return cube.hashCode();
+            });
+        }
+        average(benchmarks, "BitboardCube.deepClone", () -> bitboard.deepClone().hashCode());
+        average(benchmarks, "BitboardCube.toString", () -> bitboard.toString().length());
+        average(benchmarks, "BitboardCube.isSolved", () -> bitboard.isSolved() ? 1 : 0);
+        average(benchmarks, "CubeSymmetry.canonicalKey", () -> CubeSymmetry.canonicalKey(scrambled));
+
+        Runnable loadTables = PatternDatabase::initialize;
+        benchmarks.put("CubeEstimate.estimate", new Benchmark("CubeEstimate.estimate", false, loadTables, null,
+                () -> CubeEstimate.estimate(scrambled)));
+        benchmarks.put("CubeEstimate.estimateEnhanced", new Benchmark("CubeEstimate.estimateEnhanced", false,
+                loadTables, null, () -> CubeEstimate.estimateEnhanced(scrambled)));
+        benchmarks.put("CubeEstimate.estimateSimple", new Benchmark("CubeEstimate.estimateSimple", false,
+                loadTables, null, () -> CubeEstimate.estimateSimple(scrambled)));
+        benchmarks.put("PatternDatabase.lookup.hit", new Benchmark("PatternDatabase.lookup.hit", false, loadTables,
+                null, () -> PatternDatabase.lookup(nearSolved).depth));
+        benchmarks.put("PatternDatabase.lookup.miss", new Benchmark("PatternDatabase.lookup.miss", false,
+                loadTables, null, () -> PatternDatabase.lookup(scrambled) == null ? 0 : 1));
+        benchmarks.put("PatternDatabase.initialize", new Benchmark("PatternDatabase.initialize", true, null,
+                PatternDatabase::reset, () -> {
+                    PatternDatabase.initialize();
+                    return PatternDatabase.availableDepth();
+                }));
+
+        List<Path> inputs;
+        try {
+            inputs = BatchSolver.inputFiles(List.of(this.files));
+        } catch (IOException e) {
+            inputs = List.of();
+        }
+        for (Path input : inputs) {
+            String name = "Solver." + this.engine + "." + input.getFileName().toString().replaceFirst("\\.txt$", "");
+            RubiksCube[] cube = new RubiksCube[1];
+            benchmarks.put(name, new Benchmark(name, true, loadTables, () -> {
+                try {
+                    cube[0] = new RubiksCube(input.toString());
+                } catch (IOException | IncorrectFormatException e) {
+                    throw new IllegalStateException("Cannot read " + input + ": " + e.getMessage(), e);
+                }
+            }, () -> {
+                try {
+                    Solver.Result result = Solver.solveWith(this.engine, cube[0], TwoPhaseSolver.DEFAULT_MAX_LENGTH,
+                            new SearchStats(), System.out);
+                    if (result == null || result.solution == null) {
+                        throw new IllegalStateException(input + " not solved");
+                    }
+                    return result.steps;
+                } catch (IncorrectFormatException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }));
+        }
+        return benchmarks;
+    }
+
+    private static void average(Map<String, Benchmark> benchmarks, String name, LongSupplier body) {
+        benchmarks.put(name, new Benchmark(name, false, null, null, body));
+    }
+
+    /**
+     * Runs every fork of every benchmark in child JVMs, then prints the
+     * summary table
+     */
+    private void runAll(List<Benchmark> selected) {
+        List<String> summary = new ArrayList<>();
+        summary.add(String.format("%-40s %5s %4s %14s %14s  %s", "Benchmark", "Mode", "Cnt", "Score", "Error",
+                "Units"));
+        for (Benchmark benchmark : selected) {
+            System.out.println("# Benchmark: " + benchmark.name);
+            List<Double> scores = new ArrayList<>();
+            if (this.forks <= 0) {
+                for (double score : measure(benchmark, System.out)) {
+                    scores.add(score);
+                }
+            }
+            for (int fork = 1; fork <= this.forks; fork++) {
+                System.out.println("# Fork: " + fork + " of " + this.forks);
+                try {
+                    scores.addAll(fork(benchmark));
+                } catch (IOException | InterruptedException e) {
+                    System.out.println("Fork failed: " + e.getMessage());
+                }
+            }
+            double[] values = scores.stream().mapToDouble(Double::doubleValue).toArray();
+            double mean = Arrays.stream(values).average().orElse(Double.NaN);
+            double error = confidence(values);
+            System.out.printf("Result \"%s\": %.3f +- %.3f %s (99.9%%)%n%n", benchmark.name, mean, error,
+                    benchmark.unit());
+            summary.add(String.format("%-40s %5s %4d %14.3f %14s  %s", benchmark.name,
+                    benchmark.singleShot ? "ss" : "avgt", values.length, mean,
+                    Double.isNaN(error) ? "" : String.format("+- %.3f", error), benchmark.unit()));
+        }
+        for (String line : summary) {
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Measures benchmark in a fresh JVM with the same JVM arguments
+     *
+     * @return the scores of the timed iterations
+     */
+    private List<Double> fork(Benchmark benchmark) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Benchmarks.class.getName());
+        command.add("--run=" + benchmark.name);
+        command.add("--warmup=" + this.warmup);
+        command.add("--iterations=" + this.iterations);
+        command.add("--time=" + this.timeMillis);
+        command.add("--engine=" + this.engine);
+        command.add("--files=" + this.files);
+        if (this.heuristic != null) {
+            command.add("--heuristic=" + this.heuristic);
+        }
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<Double> scores = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("RESULT ")) {
+                    scores.add(Double.parseDouble(line.substring("RESULT ".length())));
+                } else {
+                    System.out.println(line);
+                }
+            }
+        }
+        int exit = process.waitFor();
+        if (exit != 0) {
+            System.out.println("Fork exited with status " + exit);
+        }
+        return scores;
+    }
+
+    /**
+     * Child side of fork(): measures benchmark and prints one RESULT line per
+     * timed iteration
+     */
+    private void runFork(Benchmark benchmark) {
+        if (benchmark == null) {
+            System.out.println("Unknown benchmark");
+            System.exit(2);
+        }
+        for (double score : measure(benchmark, System.out)) {
+            System.out.println("RESULT " + score);
+        }
+    }
+
+    /**
+     * Warm-up and timed iterations in this JVM. The solvers' own progress
+     * output is discarded while measuring, so it neither shows up in the
+     * report nor costs console time.
+     *
+     * @return the scores of the timed iterations
+     */
+    private double[] measure(Benchmark benchmark, PrintStream report) {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            if (benchmark.setup != null) {
+                benchmark.setup.run();
+            }
+            double[] scores = new double[this.iterations];
+            long batch = 1;
+            for (int i = 0; i < this.warmup + this.iterations; i++) {
+                double score;
+                if (benchmark.singleShot) {
+                    if (benchmark.beforeEach != null) {
+                        benchmark.beforeEach.run();
+                    }
+                    long start = System.nanoTime();
+                    sink ^= benchmark.body.getAsLong();
+                    score = (System.nanoTime() - start) / 1e6;
+                } else {
+                    score = timeSlice(benchmark.body, batch);
+                    // aim for about 10 microseconds per batch, so reading the
+                    // clock does not show in the score
+                    batch = Math.max(1, (long) (10_000 / Math.max(score, 1e-3)));
+                }
+                boolean warm = i >= this.warmup;
+                if (warm) {
+                    scores[i - this.warmup] = score;
+                }
+                report.printf("%s %d: %.3f %s%n", warm ? "Iteration" : "# Warmup Iteration",
+                        warm ? i - this.warmup + 1 : i + 1, score, benchmark.unit());
+            }
+            return scores;
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * Calls body in batches for timeMillis
+     *
+     * @return nanoseconds per call
+     */
+    private double timeSlice(LongSupplier body, long batch) {
+        long result = 0;
+        long calls = 0;
+        long start = System.nanoTime();
+        long deadline = start + this.timeMillis * 1_000_000;
+        long now;
+        do {
+            for (long i = 0; i < batch; i++) {
+                result ^= body.getAsLong();
+            }
+            calls += batch;
+            now = System.nanoTime();
+        } while (now < deadline);
+        sink ^= result;
+        return (double) (now - start) / calls;
+    }
+
+    /**
+     * @return half width of the 99.9% confidence interval of the mean, NaN
+     *         for fewer than two values
+     */
+    static double confidence(double[] values) {
+        int n = values.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double mean = Arrays.stream(values).average().getAsDouble();
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        double deviation = Math.sqrt(squares / (n - 1));
+        int df = n - 1;
+        double t;
+        if (df <= T_999.length) {
+            t = T_999[df - 1];
+        } else if (df < 40) {
+            t = T_999[T_999.length - 1];
+        } else if (df < 60) {
+            t = 3.551;
+        } else if (df < 120) {
+            t = 3.460;
+        } else {
+            t = 3.373;
+        }
+        return t * deviation / Math.sqrt(n);
+    }
+}
@@ -0,0 +1,202 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Alternative cube engine: each face keeps its 8 non-center stickers as the 8
+ * bytes of one long, in clockwise ring order starting at the top-left corner.
+ * A face turn is a rotate of the turning face plus masked copies of the strips
+ * on the adjacent faces. Centers never move so they are not stored.
+ * Same public contract as RubiksCube so both engines can be compared.
+ */
+public class BitboardCube {
+    static final int FACES = 6;
+
+    // face-local (row, col) of ring byte k
+    private static final int[][] RING = {
+            { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 2 }, { 2, 2 }, { 2, 1 }, { 2, 0 }, { 1, 0 }
+    };
+
+    // top-left corner of each face on the net, faces in FaceType order
+    private static final int[][] FACE_ORIGIN = {
+            { 3, 3 }, { 3, 9 }, { 3, 6 }, { 3, 0 }, { 0, 3 }, { 6, 3 }
+    };
+
+    // STICKER[face][k]: facelet index in RubiksCube of ring byte k
+    static final int[][] STICKER = new int[FACES][8];
+
+    private static final long[] SOLVED = new long[FACES];
+
+    // per move: groups of { destination face, source face, left shift, mask }
+    private static final int[][] OP_FACES = new int[RubiksCube.MOVE_COUNT][];
+    private static final long[][] OP_MASKS = new long[RubiksCube.MOVE_COUNT][];
+
+    static {
+        int[] faceOf = new int[RubiksCube.TOTAL_ELEMENTS];
+        int[] byteOf = new int[RubiksCube.TOTAL_ELEMENTS];
+        Arrays.fill(faceOf, -1);
+        for (int face = 0; face < FACES; face++) {
+            for (int k = 0; k < 8; k++) {
+                int index = RubiksCube.FACELET_INDEX[FACE_ORIGIN[face][0] + RING[k][0]][FACE_ORIGIN[face][1]
+                        + RING[k][1]];
+                STICKER[face][k] = index;
+                faceOf[index] = face;
+                byteOf[index] = k;
+            }
+        }
+        System.arraycopy(pack(new RubiksCube()), 0, SOLVED, 0, FACES);
+        for (int move = 0; move < RubiksCube.MOVE_COUNT; move++) {
+            int[] table = RubiksCube.MOVE_TABLE[move];
+            // mask for every (destination, source, rotation) triple
+            long[][][] masks = new long[FACES][FACES][8];
+            for (int face = 0; face < FACES; face++) {
+                for (int k = 0; k < 8; k++) {
+                    int source = table[STICKER[face][k]];
+                    int rotation = (k - byteOf[source] + 8) % 8;
+                    masks[face][faceOf[source]][rotation] |= 0xFFL << (8 * k);
+                }
+            }
+            List<int[]> ops = new ArrayList<>();
+            List<Long> opMasks = new ArrayList<>();
+            for (int dst = 0; dst < FACES; dst++) {
+                for (int src = 0; src < FACES; src++) {
+                    for (int rotation = 0; rotation < 8; rotation++) {
+                        if (masks[dst][src][rotation] != 0) {
+                            ops.add(new int[] { dst, src, 8 * rotation });
+                            opMasks.add(masks[dst][src][rotation]);
+                        }
+                    }
+                }
+            }
+            OP_FACES[move] = new int[ops.size() * 3];
+            OP_MASKS[move] = new long[ops.size()];
+            for (int i = 0; i < ops.size(); i++) {
+                System.arraycopy(ops.get(i), 0, OP_FACES[move], i * 3, 3);
+                OP_MASKS[move][i] = opMasks.get(i);
+            }
+        }
+    }
+
+    long[] faces;
+    private long[] scratch = new long[FACES];
+
+    /**
+     * Creates a Bitboard cube in the solved state
+     */
+    public BitboardCube() {
+        this.faces = SOLVED.clone();
+    }
+
+    public BitboardCube(RubiksCube cube) {
+        this.faces = pack(cube);
+    }
+
+    /**
+     * Creates a Bitboard cube from the description in fileName
+     */
+    public BitboardCube(String fileName) throws IOException, IncorrectFormatException {
+        this(new RubiksCube(fileName));
+    }
+
+    private static long[] pack(RubiksCube cube) {
+        long[] packed = new long[FACES];
+        for (int face = 0; face < FACES; face++) {
+            for (int k = 0; k < 8; k++) {
+                packed[face] |= (long) cube.facelets[STICKER[face][k]] << (8 * k);
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Applies a single move code, see RubiksCube.MOVE_NAMES
+     */
+    void applyMove(int move) {
+        long[] next = this.scratch;
+        long[] current = this.faces;
+        int[] ops = OP_FACES[move];
+        long[] masks = OP_MASKS[move];
+        Arrays.fill(next, 0L);
+        for (int i = 0; i < masks.length; i++) {
+            next[ops[3 * i]] |= Long.rotateLeft(current[ops[3 * i + 1]], ops[3 * i + 2]) & masks[i];
+        }
+        this.faces = next;
+        this.scratch = current;
+    }
+
+    /**
+     * @param moves
+     *              Applies the sequence of moves on the cube
+     */
+    public void applyMoves(String moves) {
+        for (int i = 0; i < moves.length(); i++) {
+            switch (moves.charAt(i)) {
+                case 'F':
+                    applyMove(0);
+                    break;
+                case 'B':
+                    applyMove(3);
+                    break;
+                case 'R':
+                    applyMove(6);
+                    break;
+                case 'L':
+                    applyMove(9);
+                    break;
+                case 'U':
+                    applyMove(12);
+                    break;
+                case 'D':
+                    applyMove(15);
+                    break;
+            }
+        }
+    }
+
+    public boolean isSolved() {
+        return Arrays.equals(this.faces, SOLVED);
+    }
+
+    public BitboardCube deepClone() {
+        BitboardCube clone = new BitboardCube();
+        System.arraycopy(this.faces, 0, clone.faces, 0, FACES);
+        return clone;
+    }
+
+    public RubiksCube toRubiksCube() {
+        byte[] facelets = new RubiksCube().facelets;
+        for (int face = 0; face < FACES; face++) {
+            for (int k = 0; k < 8; k++) {
+                facelets[STICKER[face][k]] = (byte) (this.faces[face] >>> (8 * k));
+            }
+        }
+        return new RubiksCube(facelets);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BitboardCube)) {
+            return false;
+        }
+        long[] o = ((BitboardCube) other).faces;
+        long[] f = this.faces;
+        return f[0] == o[0] && f[1] == o[1] && f[2] == o[2] && f[3] == o[3] && f[4] == o[4] && f[5] == o[5];
+    }
+
+    @Override
+    public int hashCode() {
+        long h = 0;
+        for (long face : this.faces) {
+            h = (h ^ face) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toRubiksCube().toString();
+    }
+}
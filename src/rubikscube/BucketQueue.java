@@ -0,0 +1,166 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Open list for small integer priorities: one bucket per f value instead of
+ * a binary heap, so offer and poll are O(1) apart from a scan over the
+ * (few) g values of one f. Ties on f are broken first in first out, last in
+ * first out, or highest g first (LIFO among equal g), which reaches the
+ * pattern database goal ball sooner.
+ *
+ * Each bucket is a ring of int node indexes, so queuing a node allocates
+ * nothing once the rings have grown.
+ *
+ * With dedup on, an index of the best g queued for each state key suppresses
+ * duplicates: a node is refused if its state was already queued with a g no
+ * larger, and a node overtaken by a later, shorter path to its state is
+ * skipped when it comes up. Both count as dropped.
+ */
+class BucketQueue implements NodeArena.OpenList {
+    enum TieBreak {
+        FIFO, LIFO, HIGH_G
+    }
+
+    private final NodeArena nodes;
+    private final TieBreak tieBreak;
+    // best g queued per state key, null without dedup
+    private final StateTable best;
+
+    // buckets[f][g]; FIFO and LIFO keep everything of one f in buckets[f][0]
+    private Ring[][] buckets = new Ring[32][];
+    private int[] countByF = new int[32];
+    private int minF;
+    private int size;
+    private long dropped;
+
+    BucketQueue(NodeArena nodes, TieBreak tieBreak, boolean dedup) {
+        this.nodes = nodes;
+        this.tieBreak = tieBreak;
+        this.best = dedup ? new StateTable() : null;
+    }
+
+    @Override
+    public void offer(int node) {
+        int g = this.nodes.g(node);
+        if (this.best != null) {
+            long key = this.nodes.key(node);
+            int queued = this.best.get(key);
+            if (queued >= 0 && queued <= g) {
+                this.dropped++;
+                return;
+            }
+            this.best.put(key, g);
+        }
+        int f = Math.max(0, this.nodes.f(node));
+        bucket(f, this.tieBreak == TieBreak.HIGH_G ? g : 0).addLast(node);
+        this.countByF[f]++;
+        if (this.size == 0 || f < this.minF) {
+            this.minF = f;
+        }
+        this.size++;
+    }
+
+    /**
+     * @return the next node whose g is still the best queued for its state,
+     *         -1 if none is left
+     */
+    @Override
+    public int poll() {
+        while (this.size > 0) {
+            int node = take();
+            if (this.best == null || this.best.get(this.nodes.key(node)) >= this.nodes.g(node)) {
+                return node;
+            }
+            this.dropped++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of entries, including stale ones poll will skip
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public long dropped() {
+        return this.dropped;
+    }
+
+    private int take() {
+        Ring bucket = firstBucket();
+        int node = this.tieBreak == TieBreak.FIFO ? bucket.pollFirst() : bucket.pollLast();
+        this.countByF[this.minF]--;
+        this.size--;
+        return node;
+    }
+
+    /**
+     * @return the non-empty bucket the next element comes from; moves minF up
+     *         past empty f values
+     */
+    private Ring firstBucket() {
+        while (this.countByF[this.minF] == 0) {
+            this.minF++;
+        }
+        Ring[] row = this.buckets[this.minF];
+        for (int g = row.length - 1; g >= 0; g--) {
+            if (row[g] != null && row[g].size > 0) {
+                return row[g];
+            }
+        }
+        throw new IllegalStateException("bucket count out of sync");
+    }
+
+    private Ring bucket(int f, int g) {
+        if (f >= this.buckets.length) {
+            int length = Math.max(f + 1, this.buckets.length * 2);
+            this.buckets = Arrays.copyOf(this.buckets, length);
+            this.countByF = Arrays.copyOf(this.countByF, length);
+        }
+        Ring[] row = this.buckets[f];
+        if (row == null || g >= row.length) {
+            row = row == null ? new Ring[Math.max(g + 1, 8)] : Arrays.copyOf(row, Math.max(g + 1, row.length * 2));
+            this.buckets[f] = row;
+        }
+        if (row[g] == null) {
+            row[g] = new Ring();
+        }
+        return row[g];
+    }
+
+    /**
+     * Double-ended queue of ints in a power-of-two ring
+     */
+    private static final class Ring {
+        private int[] items = new int[16];
+        private int head;
+        private int size;
+
+        void addLast(int item) {
+            if (this.size == this.items.length) {
+                int[] grown = new int[this.items.length * 2];
+                for (int i = 0; i < this.size; i++) {
+                    grown[i] = this.items[(this.head + i) & (this.items.length - 1)];
+                }
+                this.items = grown;
+                this.head = 0;
+            }
+            this.items[(this.head + this.size++) & (this.items.length - 1)] = item;
+        }
+
+        int pollFirst() {
+            int item = this.items[this.head];
+            this.head = (this.head + 1) & (this.items.length - 1);
+            this.size--;
+            return item;
+        }
+
+        int pollLast() {
+            return this.items[(this.head + --this.size) & (this.items.length - 1)];
+        }
+    }
+}
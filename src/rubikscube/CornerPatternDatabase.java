@@ -0,0 +1,85 @@
+package rubikscube;
+
+/**
+ * Exact distances for all 8! * 3^7 = 88,179,840 corner configurations,
+ * indexed by corner permutation * 2187 + corner twist. Ignoring the edges
+ * can only make a cube easier, so the value is an admissible lower bound.
+ */
+class CornerPatternDatabase extends NibblePatternDatabase {
+    static final int PERMUTATIONS = 40320;
+    static final int TWISTS = 2187;
+
+    // coordinate move tables, [coordinate * 18 + move]
+    static final int[] PERMUTATION_MOVE = new int[PERMUTATIONS * RubiksCube.MOVE_COUNT];
+    static final short[] TWIST_MOVE = new short[TWISTS * RubiksCube.MOVE_COUNT];
+
+    static {
+        if (!TableFiles.read("corner-moves", PERMUTATION_MOVE, TWIST_MOVE)) {
+            generateMoveTables();
+            TableFiles.write("corner-moves", PERMUTATION_MOVE, TWIST_MOVE);
+        }
+    }
+
+    private static void generateMoveTables() {
+        CubieCube cube = new CubieCube();
+        for (int p = 0; p < PERMUTATIONS; p++) {
+            for (int m = 0; m < RubiksCube.MOVE_COUNT; m++) {
+                cube.setCornerPermutation(p);
+                cube.cornerMultiply(CubieCube.MOVE_CUBE[m]);
+                PERMUTATION_MOVE[p * RubiksCube.MOVE_COUNT + m] = cube.getCornerPermutation();
+            }
+        }
+        cube = new CubieCube();
+        for (int t = 0; t < TWISTS; t++) {
+            for (int m = 0; m < RubiksCube.MOVE_COUNT; m++) {
+                cube.setTwist(t);
+                cube.cornerMultiply(CubieCube.MOVE_CUBE[m]);
+                TWIST_MOVE[t * RubiksCube.MOVE_COUNT + m] = (short) cube.getTwist();
+            }
+        }
+    }
+
+    // volatile so that searches on several threads read it without locking
+    private static volatile CornerPatternDatabase instance;
+
+    CornerPatternDatabase() {
+        super(PERMUTATIONS * TWISTS);
+    }
+
+    /**
+     * @return the shared table, loaded or generated on first call
+     */
+    static CornerPatternDatabase getInstance() {
+        CornerPatternDatabase db = instance;
+        if (db != null) {
+            return db;
+        }
+        synchronized (CornerPatternDatabase.class) {
+            if (instance == null) {
+                db = new CornerPatternDatabase();
+                db.loadOrGenerate();
+                instance = db;
+            }
+            return instance;
+        }
+    }
+
+    @Override
+    String name() {
+        return "corners";
+    }
+
+    @Override
+    int index(CubieCube cube) {
+        return cube.getCornerPermutation() * TWISTS + cube.getTwist();
+    }
+
+    @Override
+    void successors(int index, int[] next) {
+        int p = (index / TWISTS) * RubiksCube.MOVE_COUNT;
+        int t = (index % TWISTS) * RubiksCube.MOVE_COUNT;
+        for (int m = 0; m < RubiksCube.MOVE_COUNT; m++) {
+            next[m] = PERMUTATION_MOVE[p + m] * TWISTS + TWIST_MOVE[t + m];
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package rubikscube;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * CubeEstimate - 负责所有启发函数的计算
@@ -35,11 +34,70 @@ public class CubeEstimate {
      * 如果状态在PDB中，直接返回准确步数
      */
     private static int estimateWithPDB(RubiksCube cube) {
-        PatternDatabase.PDBEntry entry = PatternDatabase.lookup(cube);
-        if (entry != null) {
-            return entry.depth;
+        // 只需要深度，不构造路径；不在数据库中返回 -1
+        return PatternDatabase.getDepth(cube);
+    }
+
+    // 每个线程一个换算用的角块/边块缓冲区，每个节点的启发函数不再分配对象
+    private static final ThreadLocal<CubieCube> CUBIE_SCRATCH = ThreadLocal.withInitial(CubieCube::new);
+
+    /**
+     * 角块Pattern Database估计：8个角块还原所需的精确步数
+     * 是可采纳的下界，查表为O(1)（第一次调用时加载或生成约42MB的表）
+     */
+    public static int estimateCornerPDB(RubiksCube cube) {
+        return CornerPatternDatabase.getInstance().lookup(CUBIE_SCRATCH.get().setFacelets(cube));
+    }
+
+    // Korf 组合启发函数使用的表，顺序与 KORF_SOURCE_COUNTS 相同
+    static final String[] KORF_TABLES = { "corners", "edges0", "edges1" };
+    // 开启后统计每个表提供最大下界的次数，用来观察剪枝能力来自哪里
+    static volatile boolean reportKorfSources = false;
+    static final AtomicLongArray KORF_SOURCE_COUNTS = new AtomicLongArray(KORF_TABLES.length);
+
+    /**
+     * Korf 组合启发函数：角块表和两个6边块表取最大值
+     * 每个表都是精确下界，所以最大值仍然可采纳，可直接替换 estimate
+     */
+    public static int estimateKorf(RubiksCube cube) {
+        // 搜索中的状态都由合法状态转动得到，不需要 fromFacelets 的校验
+        CubieCube cubie = CUBIE_SCRATCH.get().setFacelets(cube);
+        EdgePatternDatabase[] edges = EdgePatternDatabase.getInstances();
+        int bound = CornerPatternDatabase.getInstance().lookup(cubie);
+        int source = 0;
+        int edges0 = edges[0].lookup(cubie);
+        if (edges0 > bound) {
+            bound = edges0;
+            source = 1;
+        }
+        int edges1 = edges[1].lookup(cubie);
+        if (edges1 > bound) {
+            bound = edges1;
+            source = 2;
+        }
+        if (reportKorfSources) {
+            KORF_SOURCE_COUNTS.incrementAndGet(source);
+        }
+        return bound;
+    }
+
+    /**
+     * @return 每个表提供最大下界的次数，例如 "corners 62.1%, edges0 20.3%, edges1 17.6%"
+     */
+    public static String korfSourceReport() {
+        long total = 0;
+        for (int i = 0; i < KORF_TABLES.length; i++) {
+            total += KORF_SOURCE_COUNTS.get(i);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < KORF_TABLES.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("%s %.1f%%", KORF_TABLES[i],
+                    total == 0 ? 0.0 : 100.0 * KORF_SOURCE_COUNTS.get(i) / total));
         }
-        return -1; // 不在数据库中
+        return sb.toString();
     }
 
     /**
@@ -86,28 +144,73 @@ public class CubeEstimate {
         return (cornerSteps + edgeSteps) / 8;
     }
 
+    // 角块位置和目标颜色，常量只创建一次，搜索中每次估计不再分配
+    private static final CornerDef[] CORNER_DEFS = {
+            new CornerDef(new int[][] { { 2, 3 }, { 3, 2 }, { 3, 3 } }, new char[] { 'O', 'G', 'W' }),
+            new CornerDef(new int[][] { { 2, 5 }, { 3, 5 }, { 3, 6 } }, new char[] { 'O', 'W', 'B' }),
+            new CornerDef(new int[][] { { 0, 3 }, { 3, 11 }, { 3, 0 } }, new char[] { 'O', 'Y', 'G' }),
+            new CornerDef(new int[][] { { 0, 5 }, { 3, 8 }, { 3, 9 } }, new char[] { 'O', 'B', 'Y' }),
+            new CornerDef(new int[][] { { 6, 3 }, { 5, 2 }, { 5, 3 } }, new char[] { 'R', 'G', 'W' }),
+            new CornerDef(new int[][] { { 6, 5 }, { 5, 5 }, { 5, 6 } }, new char[] { 'R', 'W', 'B' }),
+            new CornerDef(new int[][] { { 8, 3 }, { 5, 11 }, { 5, 0 } }, new char[] { 'R', 'Y', 'G' }),
+            new CornerDef(new int[][] { { 8, 5 }, { 5, 8 }, { 5, 9 } }, new char[] { 'R', 'B', 'Y' })
+    };
+
+    // 边块位置和目标颜色
+    private static final EdgeDef[] EDGE_DEFS = {
+            new EdgeDef(new int[][] { { 2, 4 }, { 3, 4 } }, new char[] { 'O', 'W' }),
+            new EdgeDef(new int[][] { { 1, 5 }, { 3, 7 } }, new char[] { 'O', 'B' }),
+            new EdgeDef(new int[][] { { 0, 4 }, { 3, 10 } }, new char[] { 'O', 'Y' }),
+            new EdgeDef(new int[][] { { 1, 3 }, { 3, 1 } }, new char[] { 'O', 'G' }),
+            new EdgeDef(new int[][] { { 4, 2 }, { 4, 3 } }, new char[] { 'G', 'W' }),
+            new EdgeDef(new int[][] { { 4, 5 }, { 4, 6 } }, new char[] { 'W', 'B' }),
+            new EdgeDef(new int[][] { { 4, 11 }, { 4, 0 } }, new char[] { 'Y', 'G' }),
+            new EdgeDef(new int[][] { { 4, 8 }, { 4, 9 } }, new char[] { 'B', 'Y' }),
+            new EdgeDef(new int[][] { { 5, 4 }, { 6, 4 } }, new char[] { 'W', 'R' }),
+            new EdgeDef(new int[][] { { 5, 7 }, { 7, 5 } }, new char[] { 'B', 'R' }),
+            new EdgeDef(new int[][] { { 5, 10 }, { 8, 4 } }, new char[] { 'Y', 'R' }),
+            new EdgeDef(new int[][] { { 5, 1 }, { 7, 3 } }, new char[] { 'G', 'R' })
+    };
+
+    // 简单估计使用的角块定义
+    private static final Corner[] SIMPLE_CORNERS = {
+            new Corner(new int[][] { { 2, 3 }, { 3, 2 }, { 3, 3 } }, new char[] { 'O', 'G', 'W' }),
+            new Corner(new int[][] { { 2, 5 }, { 3, 5 }, { 3, 6 } }, new char[] { 'O', 'W', 'B' }),
+            new Corner(new int[][] { { 0, 3 }, { 3, 11 }, { 3, 0 } }, new char[] { 'O', 'Y', 'G' }),
+            new Corner(new int[][] { { 0, 5 }, { 3, 8 }, { 3, 9 } }, new char[] { 'O', 'B', 'Y' }),
+            new Corner(new int[][] { { 5, 2 }, { 5, 3 }, { 6, 3 } }, new char[] { 'G', 'W', 'R' }),
+            new Corner(new int[][] { { 5, 5 }, { 5, 6 }, { 6, 5 } }, new char[] { 'W', 'B', 'R' }),
+            new Corner(new int[][] { { 5, 11 }, { 5, 0 }, { 8, 3 } }, new char[] { 'Y', 'G', 'R' }),
+            new Corner(new int[][] { { 5, 8 }, { 5, 9 }, { 8, 5 } }, new char[] { 'B', 'Y', 'R' })
+    };
+
+    // 简单估计使用的边块定义
+    private static final Edge[] SIMPLE_EDGES = {
+            new Edge(new int[][] { { 2, 4 }, { 3, 4 } }, new char[] { 'O', 'W' }),
+            new Edge(new int[][] { { 1, 5 }, { 3, 7 } }, new char[] { 'O', 'B' }),
+            new Edge(new int[][] { { 0, 4 }, { 3, 10 } }, new char[] { 'O', 'Y' }),
+            new Edge(new int[][] { { 1, 3 }, { 3, 1 } }, new char[] { 'O', 'G' }),
+            new Edge(new int[][] { { 4, 2 }, { 4, 3 } }, new char[] { 'G', 'W' }),
+            new Edge(new int[][] { { 4, 5 }, { 4, 6 } }, new char[] { 'W', 'B' }),
+            new Edge(new int[][] { { 4, 11 }, { 4, 0 } }, new char[] { 'Y', 'G' }),
+            new Edge(new int[][] { { 4, 8 }, { 4, 9 } }, new char[] { 'B', 'Y' }),
+            new Edge(new int[][] { { 5, 4 }, { 6, 4 } }, new char[] { 'W', 'R' }),
+            new Edge(new int[][] { { 5, 7 }, { 7, 5 } }, new char[] { 'B', 'R' }),
+            new Edge(new int[][] { { 5, 10 }, { 8, 4 } }, new char[] { 'Y', 'R' }),
+            new Edge(new int[][] { { 5, 1 }, { 7, 3 } }, new char[] { 'G', 'R' })
+    };
+
     // ========================================
     // 增强的角块评估
     // ========================================
 
     private static int estimateCorners(RubiksCube cube) {
-        String[][] c = cube.cube;
+        RubiksCube c = cube;
         int totalSteps = 0;
         int misplacedCount = 0;
         int twistedCount = 0;
 
-        CornerDef[] corners = {
-                new CornerDef(new int[][] { { 2, 3 }, { 3, 2 }, { 3, 3 } }, new String[] { "O", "G", "W" }),
-                new CornerDef(new int[][] { { 2, 5 }, { 3, 5 }, { 3, 6 } }, new String[] { "O", "W", "B" }),
-                new CornerDef(new int[][] { { 0, 3 }, { 3, 11 }, { 3, 0 } }, new String[] { "O", "Y", "G" }),
-                new CornerDef(new int[][] { { 0, 5 }, { 3, 8 }, { 3, 9 } }, new String[] { "O", "B", "Y" }),
-                new CornerDef(new int[][] { { 6, 3 }, { 5, 2 }, { 5, 3 } }, new String[] { "R", "G", "W" }),
-                new CornerDef(new int[][] { { 6, 5 }, { 5, 5 }, { 5, 6 } }, new String[] { "R", "W", "B" }),
-                new CornerDef(new int[][] { { 8, 3 }, { 5, 11 }, { 5, 0 } }, new String[] { "R", "Y", "G" }),
-                new CornerDef(new int[][] { { 8, 5 }, { 5, 8 }, { 5, 9 } }, new String[] { "R", "B", "Y" })
-        };
-
-        for (CornerDef corner : corners) {
+        for (CornerDef corner : CORNER_DEFS) {
             int score = evaluateCorner(c, corner);
             totalSteps += score;
 
@@ -133,21 +236,21 @@ public class CubeEstimate {
         return baseEstimate;
     }
 
-    private static int evaluateCorner(String[][] c, CornerDef corner) {
-        String c0 = c[corner.pos[0][0]][corner.pos[0][1]];
-        String c1 = c[corner.pos[1][0]][corner.pos[1][1]];
-        String c2 = c[corner.pos[2][0]][corner.pos[2][1]];
+    private static int evaluateCorner(RubiksCube c, CornerDef corner) {
+        char c0 = c.colorAt(corner.pos[0][0], corner.pos[0][1]);
+        char c1 = c.colorAt(corner.pos[1][0], corner.pos[1][1]);
+        char c2 = c.colorAt(corner.pos[2][0], corner.pos[2][1]);
 
-        Set<String> currentColors = new HashSet<>(Arrays.asList(c0, c1, c2));
-        Set<String> targetColors = new HashSet<>(Arrays.asList(corner.colors));
+        int currentColors = colorSet(c0) | colorSet(c1) | colorSet(c2);
+        int targetColors = colorSet(corner.colors[0]) | colorSet(corner.colors[1]) | colorSet(corner.colors[2]);
 
-        if (!currentColors.equals(targetColors)) {
+        if (currentColors != targetColors) {
             return 2; // 位置错误
         }
 
-        if (c0.equals(corner.colors[0]) &&
-                c1.equals(corner.colors[1]) &&
-                c2.equals(corner.colors[2])) {
+        if (c0 == corner.colors[0] &&
+                c1 == corner.colors[1] &&
+                c2 == corner.colors[2]) {
             return 0; // 完全正确
         }
 
@@ -160,27 +263,12 @@ public class CubeEstimate {
     // ========================================
 
     private static int estimateEdges(RubiksCube cube) {
-        String[][] c = cube.cube;
+        RubiksCube c = cube;
         int totalSteps = 0;
         int misplacedCount = 0;
         int flippedCount = 0;
 
-        EdgeDef[] edges = {
-                new EdgeDef(new int[][] { { 2, 4 }, { 3, 4 } }, new String[] { "O", "W" }),
-                new EdgeDef(new int[][] { { 1, 5 }, { 3, 7 } }, new String[] { "O", "B" }),
-                new EdgeDef(new int[][] { { 0, 4 }, { 3, 10 } }, new String[] { "O", "Y" }),
-                new EdgeDef(new int[][] { { 1, 3 }, { 3, 1 } }, new String[] { "O", "G" }),
-                new EdgeDef(new int[][] { { 4, 2 }, { 4, 3 } }, new String[] { "G", "W" }),
-                new EdgeDef(new int[][] { { 4, 5 }, { 4, 6 } }, new String[] { "W", "B" }),
-                new EdgeDef(new int[][] { { 4, 11 }, { 4, 0 } }, new String[] { "Y", "G" }),
-                new EdgeDef(new int[][] { { 4, 8 }, { 4, 9 } }, new String[] { "B", "Y" }),
-                new EdgeDef(new int[][] { { 5, 4 }, { 6, 4 } }, new String[] { "W", "R" }),
-                new EdgeDef(new int[][] { { 5, 7 }, { 7, 5 } }, new String[] { "B", "R" }),
-                new EdgeDef(new int[][] { { 5, 10 }, { 8, 4 } }, new String[] { "Y", "R" }),
-                new EdgeDef(new int[][] { { 5, 1 }, { 7, 3 } }, new String[] { "G", "R" })
-        };
-
-        for (EdgeDef edge : edges) {
+        for (EdgeDef edge : EDGE_DEFS) {
             int score = evaluateEdge(c, edge);
             totalSteps += score;
 
@@ -206,22 +294,22 @@ public class CubeEstimate {
         return baseEstimate;
     }
 
-    private static int evaluateEdge(String[][] c, EdgeDef edge) {
-        String c0 = c[edge.pos[0][0]][edge.pos[0][1]];
-        String c1 = c[edge.pos[1][0]][edge.pos[1][1]];
+    private static int evaluateEdge(RubiksCube c, EdgeDef edge) {
+        char c0 = c.colorAt(edge.pos[0][0], edge.pos[0][1]);
+        char c1 = c.colorAt(edge.pos[1][0], edge.pos[1][1]);
 
-        Set<String> currentColors = new HashSet<>(Arrays.asList(c0, c1));
-        Set<String> targetColors = new HashSet<>(Arrays.asList(edge.colors));
+        int currentColors = colorSet(c0) | colorSet(c1);
+        int targetColors = colorSet(edge.colors[0]) | colorSet(edge.colors[1]);
 
-        if (!currentColors.equals(targetColors)) {
+        if (currentColors != targetColors) {
             return 2; // 位置错误
         }
 
-        if (c0.equals(edge.colors[0]) && c1.equals(edge.colors[1])) {
+        if (c0 == edge.colors[0] && c1 == edge.colors[1]) {
             return 0; // 完全正确
         }
 
-        if (c0.equals(edge.colors[1]) && c1.equals(edge.colors[0])) {
+        if (c0 == edge.colors[1] && c1 == edge.colors[0]) {
             return 1; // 翻转
         }
 
@@ -234,20 +322,9 @@ public class CubeEstimate {
 
     private static int estimateCornerStepsSimple(RubiksCube cube) {
         int totalSteps = 0;
-        String[][] c = cube.cube;
-
-        Corner[] corners = {
-                new Corner(new int[][] { { 2, 3 }, { 3, 2 }, { 3, 3 } }, new String[] { "O", "G", "W" }),
-                new Corner(new int[][] { { 2, 5 }, { 3, 5 }, { 3, 6 } }, new String[] { "O", "W", "B" }),
-                new Corner(new int[][] { { 0, 3 }, { 3, 11 }, { 3, 0 } }, new String[] { "O", "Y", "G" }),
-                new Corner(new int[][] { { 0, 5 }, { 3, 8 }, { 3, 9 } }, new String[] { "O", "B", "Y" }),
-                new Corner(new int[][] { { 5, 2 }, { 5, 3 }, { 6, 3 } }, new String[] { "G", "W", "R" }),
-                new Corner(new int[][] { { 5, 5 }, { 5, 6 }, { 6, 5 } }, new String[] { "W", "B", "R" }),
-                new Corner(new int[][] { { 5, 11 }, { 5, 0 }, { 8, 3 } }, new String[] { "Y", "G", "R" }),
-                new Corner(new int[][] { { 5, 8 }, { 5, 9 }, { 8, 5 } }, new String[] { "B", "Y", "R" })
-        };
-
-        for (Corner corner : corners) {
+        RubiksCube c = cube;
+
+        for (Corner corner : SIMPLE_CORNERS) {
             totalSteps += evaluateCornerSimple(c, corner);
         }
 
@@ -256,40 +333,25 @@ public class CubeEstimate {
 
     private static int estimateEdgeStepsSimple(RubiksCube cube) {
         int totalSteps = 0;
-        String[][] c = cube.cube;
-
-        Edge[] edges = {
-                new Edge(new int[][] { { 2, 4 }, { 3, 4 } }, new String[] { "O", "W" }),
-                new Edge(new int[][] { { 1, 5 }, { 3, 7 } }, new String[] { "O", "B" }),
-                new Edge(new int[][] { { 0, 4 }, { 3, 10 } }, new String[] { "O", "Y" }),
-                new Edge(new int[][] { { 1, 3 }, { 3, 1 } }, new String[] { "O", "G" }),
-                new Edge(new int[][] { { 4, 2 }, { 4, 3 } }, new String[] { "G", "W" }),
-                new Edge(new int[][] { { 4, 5 }, { 4, 6 } }, new String[] { "W", "B" }),
-                new Edge(new int[][] { { 4, 11 }, { 4, 0 } }, new String[] { "Y", "G" }),
-                new Edge(new int[][] { { 4, 8 }, { 4, 9 } }, new String[] { "B", "Y" }),
-                new Edge(new int[][] { { 5, 4 }, { 6, 4 } }, new String[] { "W", "R" }),
-                new Edge(new int[][] { { 5, 7 }, { 7, 5 } }, new String[] { "B", "R" }),
-                new Edge(new int[][] { { 5, 10 }, { 8, 4 } }, new String[] { "Y", "R" }),
-                new Edge(new int[][] { { 5, 1 }, { 7, 3 } }, new String[] { "G", "R" })
-        };
-
-        for (Edge edge : edges) {
+        RubiksCube c = cube;
+
+        for (Edge edge : SIMPLE_EDGES) {
             totalSteps += evaluateEdgeSimple(c, edge);
         }
 
         return totalSteps;
     }
 
-    private static int evaluateCornerSimple(String[][] cube, Corner corner) {
-        String[] currentColors = new String[3];
+    private static int evaluateCornerSimple(RubiksCube cube, Corner corner) {
+        char[] currentColors = new char[3];
         for (int i = 0; i < 3; i++) {
             int row = corner.positions[i][0];
             int col = corner.positions[i][1];
-            currentColors[i] = cube[row][col];
+            currentColors[i] = cube.colorAt(row, col);
         }
 
-        String[] sortedCurrent = Arrays.copyOf(currentColors, 3);
-        String[] sortedTarget = Arrays.copyOf(corner.targetColors, 3);
+        char[] sortedCurrent = Arrays.copyOf(currentColors, 3);
+        char[] sortedTarget = Arrays.copyOf(corner.targetColors, 3);
         Arrays.sort(sortedCurrent);
         Arrays.sort(sortedTarget);
 
@@ -304,16 +366,16 @@ public class CubeEstimate {
         }
     }
 
-    private static int evaluateEdgeSimple(String[][] cube, Edge edge) {
-        String[] currentColors = new String[2];
+    private static int evaluateEdgeSimple(RubiksCube cube, Edge edge) {
+        char[] currentColors = new char[2];
         for (int i = 0; i < 2; i++) {
             int row = edge.positions[i][0];
             int col = edge.positions[i][1];
-            currentColors[i] = cube[row][col];
+            currentColors[i] = cube.colorAt(row, col);
         }
 
-        String[] sortedCurrent = Arrays.copyOf(currentColors, 2);
-        String[] sortedTarget = Arrays.copyOf(edge.targetColors, 2);
+        char[] sortedCurrent = Arrays.copyOf(currentColors, 2);
+        char[] sortedTarget = Arrays.copyOf(edge.targetColors, 2);
         Arrays.sort(sortedCurrent);
         Arrays.sort(sortedTarget);
 
@@ -333,15 +395,13 @@ public class CubeEstimate {
     // ========================================
 
     private static int checkKnownPatterns(RubiksCube cube) {
-        String[][] c = cube.cube;
+        RubiksCube c = cube;
 
         int totalWrong = 0;
         for (int i = 0; i < 9; i++) {
             for (int j = 0; j < 12; j++) {
-                if (c[i][j] == null)
-                    continue;
-                String target = getTargetColor(i, j);
-                if (target != null && !c[i][j].equals(target)) {
+                char target = getTargetColor(i, j);
+                if (target != ' ' && c.colorAt(i, j) != target) {
                     totalWrong++;
                 }
             }
@@ -360,7 +420,7 @@ public class CubeEstimate {
         boolean topDone = true;
         for (int i = 0; i < 3; i++) {
             for (int j = 3; j < 6; j++) {
-                if (!c[i][j].equals("O")) {
+                if (c.colorAt(i, j) != 'O') {
                     topDone = false;
                     break;
                 }
@@ -371,7 +431,7 @@ public class CubeEstimate {
             int bottomWrong = 0;
             for (int i = 6; i < 9; i++) {
                 for (int j = 3; j < 6; j++) {
-                    if (!c[i][j].equals("R"))
+                    if (c.colorAt(i, j) != 'R')
                         bottomWrong++;
                 }
             }
@@ -381,20 +441,24 @@ public class CubeEstimate {
         return -1;
     }
 
-    private static String getTargetColor(int row, int col) {
+    private static char getTargetColor(int row, int col) {
         if (row >= 0 && row <= 2 && col >= 3 && col <= 5)
-            return "O";
+            return 'O';
         if (row >= 3 && row <= 5 && col >= 3 && col <= 5)
-            return "W";
+            return 'W';
         if (row >= 6 && row <= 8 && col >= 3 && col <= 5)
-            return "R";
+            return 'R';
         if (row >= 3 && row <= 5 && col >= 0 && col <= 2)
-            return "G";
+            return 'G';
         if (row >= 3 && row <= 5 && col >= 6 && col <= 8)
-            return "B";
+            return 'B';
         if (row >= 3 && row <= 5 && col >= 9 && col <= 11)
-            return "Y";
-        return null;
+            return 'Y';
+        return ' ';
+    }
+
+    private static int colorSet(char color) {
+        return 1 << RubiksCube.colorId(color);
     }
 
     // ========================================
@@ -403,9 +467,9 @@ public class CubeEstimate {
 
     private static class CornerDef {
         int[][] pos;
-        String[] colors;
+        char[] colors;
 
-        CornerDef(int[][] pos, String[] colors) {
+        CornerDef(int[][] pos, char[] colors) {
             this.pos = pos;
             this.colors = colors;
         }
@@ -413,9 +477,9 @@ public class CubeEstimate {
 
     private static class EdgeDef {
         int[][] pos;
-        String[] colors;
+        char[] colors;
 
-        EdgeDef(int[][] pos, String[] colors) {
+        EdgeDef(int[][] pos, char[] colors) {
             this.pos = pos;
             this.colors = colors;
         }
@@ -423,9 +487,9 @@ public class CubeEstimate {
 
     static class Corner {
         int[][] positions;
-        String[] targetColors;
+        char[] targetColors;
 
-        Corner(int[][] positions, String[] targetColors) {
+        Corner(int[][] positions, char[] targetColors) {
             this.positions = positions;
             this.targetColors = targetColors;
         }
@@ -433,9 +497,9 @@ public class CubeEstimate {
 
     static class Edge {
         int[][] positions;
-        String[] targetColors;
+        char[] targetColors;
 
-        Edge(int[][] positions, String[] targetColors) {
+        Edge(int[][] positions, char[] targetColors) {
             this.positions = positions;
             this.targetColors = targetColors;
         }
@@ -0,0 +1,263 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The 48 rotations and reflections of the cube acting on states. A symmetry
+ * moves every sticker to its image position and recolors it so the centers
+ * keep their colors; the image of a state is then the state reached by the
+ * conjugated moves, the same distance from solved.
+ *
+ * The symmetries are found as the automorphisms of the sticker adjacency
+ * graph (neighbours on a face, or on one cubie), so they follow the net
+ * layout and the move tables without separate geometry, and are checked to
+ * map every move to a move.
+ */
+final class CubeSymmetry {
+    static final int COUNT = 48;
+
+    private static final int N = RubiksCube.TOTAL_ELEMENTS;
+    private static final int COLORS = RubiksCube.COLORS.length;
+
+    // POSITION[s][p]: where symmetry s puts the sticker at p
+    private static final int[][] POSITION = new int[COUNT][];
+    // COLOR[s][c]: the color c becomes under symmetry s
+    private static final byte[][] COLOR = new byte[COUNT][COLORS];
+    // CONJUGATE[s * 18 + m]: the move s m s^-1
+    private static final byte[] CONJUGATE = new byte[COUNT * RubiksCube.MOVE_COUNT];
+    // KEYS[(p * COLORS + c) * COUNT + s]: Zobrist key of the image of sticker
+    // p showing c under s, so one pass over the facelets gives all 48 image
+    // keys, XOR-ing a contiguous run of 48 longs per sticker
+    private static final long[] KEYS = new long[COUNT * N * COLORS];
+
+    static {
+        boolean[][] adjacent = adjacency();
+        List<int[]> found = new ArrayList<>();
+        int[] image = new int[N];
+        Arrays.fill(image, -1);
+        int[] order = bfsOrder(adjacent);
+        for (int p = 0; p < N; p++) {
+            boolean[] used = new boolean[N];
+            used[p] = true;
+            image[order[0]] = p;
+            extend(adjacent, order, 1, image, used, found);
+        }
+        if (found.size() != COUNT) {
+            throw new IllegalStateException("Expected " + COUNT + " cube symmetries, found " + found.size());
+        }
+        byte[] solved = new RubiksCube().facelets;
+        for (int s = 0; s < COUNT; s++) {
+            int[] position = found.get(s);
+            POSITION[s] = position;
+            for (int p = 0; p < N; p++) {
+                if (isCenter(p)) {
+                    COLOR[s][solved[p]] = solved[position[p]];
+                }
+            }
+            for (int m = 0; m < RubiksCube.MOVE_COUNT; m++) {
+                CONJUGATE[s * RubiksCube.MOVE_COUNT + m] = (byte) conjugateMove(position, m);
+            }
+            for (int p = 0; p < N; p++) {
+                for (int c = 0; c < COLORS; c++) {
+                    KEYS[(p * COLORS + c) * COUNT + s] = RubiksCube.zobrist(position[p], COLOR[s][c]);
+                }
+            }
+        }
+    }
+
+    private CubeSymmetry() {
+    }
+
+    private static int faceOfFacelet(int p) {
+        return RubiksCube.FACELET_ROW[p] / 3 * 4 + RubiksCube.FACELET_COL[p] / 3;
+    }
+
+    private static boolean isCenter(int p) {
+        return RubiksCube.FACELET_ROW[p] % 3 == 1 && RubiksCube.FACELET_COL[p] % 3 == 1;
+    }
+
+    /**
+     * Stickers sharing an edge of the surface: grid neighbours within a face,
+     * and the stickers of one edge or corner cubie across the fold
+     */
+    private static boolean[][] adjacency() {
+        boolean[][] adjacent = new boolean[N][N];
+        for (int p = 0; p < N; p++) {
+            for (int q = 0; q < N; q++) {
+                int rows = Math.abs(RubiksCube.FACELET_ROW[p] - RubiksCube.FACELET_ROW[q]);
+                int cols = Math.abs(RubiksCube.FACELET_COL[p] - RubiksCube.FACELET_COL[q]);
+                adjacent[p][q] = faceOfFacelet(p) == faceOfFacelet(q) && rows + cols == 1;
+            }
+        }
+        List<int[]> cubies = new ArrayList<>(Arrays.asList(CubieCube.CORNER_FACELET_INDEX));
+        cubies.addAll(Arrays.asList(CubieCube.EDGE_FACELET_INDEX));
+        for (int[] cubie : cubies) {
+            for (int a : cubie) {
+                for (int b : cubie) {
+                    adjacent[a][b] |= a != b;
+                }
+            }
+        }
+        return adjacent;
+    }
+
+    private static int[] bfsOrder(boolean[][] adjacent) {
+        int[] order = new int[N];
+        boolean[] seen = new boolean[N];
+        seen[0] = true;
+        for (int head = 0, tail = 1; head < tail; head++) {
+            for (int q = 0; q < N; q++) {
+                if (adjacent[order[head]][q] && !seen[q]) {
+                    seen[q] = true;
+                    order[tail++] = q;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Backtracking over the stickers in BFS order: each one maps to a
+     * neighbour of the image of an earlier neighbour, keeping adjacency and
+     * non-adjacency with everything mapped so far
+     */
+    private static void extend(boolean[][] adjacent, int[] order, int k, int[] image, boolean[] used,
+            List<int[]> found) {
+        if (k == N) {
+            found.add(image.clone());
+            return;
+        }
+        int p = order[k];
+        int anchor = -1;
+        for (int i = 0; i < k && anchor < 0; i++) {
+            if (adjacent[p][order[i]]) {
+                anchor = order[i];
+            }
+        }
+        for (int q = 0; q < N; q++) {
+            if (used[q] || !adjacent[image[anchor]][q] || !consistent(adjacent, order, k, image, p, q)) {
+                continue;
+            }
+            image[p] = q;
+            used[q] = true;
+            extend(adjacent, order, k + 1, image, used, found);
+            used[q] = false;
+            image[p] = -1;
+        }
+    }
+
+    private static boolean consistent(boolean[][] adjacent, int[] order, int k, int[] image, int p, int q) {
+        for (int i = 0; i < k; i++) {
+            if (adjacent[p][order[i]] != adjacent[q][image[order[i]]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the move whose table is position . move . position^-1
+     */
+    private static int conjugateMove(int[] position, int move) {
+        int[] inverse = new int[N];
+        for (int p = 0; p < N; p++) {
+            inverse[position[p]] = p;
+        }
+        int[] table = RubiksCube.MOVE_TABLE[move];
+        int[] conjugated = new int[N];
+        for (int q = 0; q < N; q++) {
+            conjugated[q] = position[table[inverse[q]]];
+        }
+        for (int m = 0; m < RubiksCube.MOVE_COUNT; m++) {
+            if (Arrays.equals(RubiksCube.MOVE_TABLE[m], conjugated)) {
+                return m;
+            }
+        }
+        throw new IllegalStateException("Symmetry does not map move " + RubiksCube.MOVE_NAMES[move] + " to a move");
+    }
+
+    /**
+     * @return the move that does to the image under symmetry what move does
+     *         to the original
+     */
+    static int conjugate(int symmetry, int move) {
+        return CONJUGATE[symmetry * RubiksCube.MOVE_COUNT + move];
+    }
+
+    /**
+     * @return the Zobrist key of the image of cube under symmetry
+     */
+    static long imageKey(RubiksCube cube, int symmetry) {
+        byte[] f = cube.facelets;
+        long h = 0;
+        for (int p = 0; p < N; p++) {
+            h ^= KEYS[(p * COLORS + f[p]) * COUNT + symmetry];
+        }
+        return h;
+    }
+
+    /**
+     * Key of the symmetry class of cube: the smallest key of its 48 images,
+     * equal for all states that are rotations or reflections of each other
+     */
+    static long canonicalKey(RubiksCube cube) {
+        long[] keys = imageKeys(cube);
+        long min = keys[0];
+        for (int s = 1; s < COUNT; s++) {
+            min = Math.min(min, keys[s]);
+        }
+        return min;
+    }
+
+    /**
+     * @return the keys of all 48 images of cube, indexed by symmetry
+     */
+    private static long[] imageKeys(RubiksCube cube) {
+        long[] keys = new long[COUNT];
+        byte[] f = cube.facelets;
+        for (int p = 0; p < N; p++) {
+            int base = (p * COLORS + f[p]) * COUNT;
+            for (int s = 0; s < COUNT; s++) {
+                keys[s] ^= KEYS[base + s];
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Overwrites dest with the representative of the symmetry class of cube:
+     * its image with the smallest key, so dest.stateKey() is
+     * canonicalKey(cube)
+     */
+    static void canonicalImage(RubiksCube cube, RubiksCube dest) {
+        long[] keys = imageKeys(cube);
+        int symmetry = 0;
+        for (int s = 1; s < COUNT; s++) {
+            if (keys[s] < keys[symmetry]) {
+                symmetry = s;
+            }
+        }
+        int[] position = POSITION[symmetry];
+        byte[] color = COLOR[symmetry];
+        byte[] f = cube.facelets;
+        for (int p = 0; p < N; p++) {
+            dest.facelets[position[p]] = color[f[p]];
+        }
+        dest.rehash();
+    }
+
+    /**
+     * @return a symmetry taking from to to, -1 if they are not symmetric
+     */
+    static int find(RubiksCube from, RubiksCube to) {
+        long key = to.stateKey();
+        for (int s = 0; s < COUNT; s++) {
+            if (imageKey(from, s) == key) {
+                return s;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,539 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Cubie level view of a cube: which corner/edge cubie sits at each position
+ * and how it is twisted or flipped there.
+ * Positions and orientations follow the usual URF naming:
+ * corners URF, UFL, ULB, UBR, DFR, DLF, DBL, DRB
+ * edges UR, UF, UL, UB, DR, DF, DL, DB, FR, FL, BL, BR
+ * On the net U is the O face, F is W, R is B, L is G, B is Y and D is R.
+ */
+public class CubieCube {
+    static final String[] CORNER_NAMES = { "URF", "UFL", "ULB", "UBR", "DFR", "DLF", "DBL", "DRB" };
+    static final String[] EDGE_NAMES = { "UR", "UF", "UL", "UB", "DR", "DF", "DL", "DB", "FR", "FL", "BL", "BR" };
+
+    // (row, col) of the facelets of each corner position, U/D facelet first and
+    // the others in clockwise order
+    private static final int[][][] CORNER_FACELETS = {
+            { { 2, 5 }, { 3, 6 }, { 3, 5 } },
+            { { 2, 3 }, { 3, 3 }, { 3, 2 } },
+            { { 0, 3 }, { 3, 0 }, { 3, 11 } },
+            { { 0, 5 }, { 3, 9 }, { 3, 8 } },
+            { { 6, 5 }, { 5, 5 }, { 5, 6 } },
+            { { 6, 3 }, { 5, 2 }, { 5, 3 } },
+            { { 8, 3 }, { 5, 11 }, { 5, 0 } },
+            { { 8, 5 }, { 5, 8 }, { 5, 9 } }
+    };
+
+    // (row, col) of the facelets of each edge position, U/D or F/B facelet first
+    private static final int[][][] EDGE_FACELETS = {
+            { { 1, 5 }, { 3, 7 } },
+            { { 2, 4 }, { 3, 4 } },
+            { { 1, 3 }, { 3, 1 } },
+            { { 0, 4 }, { 3, 10 } },
+            { { 7, 5 }, { 5, 7 } },
+            { { 6, 4 }, { 5, 4 } },
+            { { 7, 3 }, { 5, 1 } },
+            { { 8, 4 }, { 5, 10 } },
+            { { 4, 5 }, { 4, 6 } },
+            { { 4, 3 }, { 4, 2 } },
+            { { 4, 11 }, { 4, 0 } },
+            { { 4, 9 }, { 4, 8 } }
+    };
+
+    // (row, col) of the centers in U, R, F, D, L, B order
+    private static final int[][] CENTERS = { { 1, 4 }, { 4, 7 }, { 4, 4 }, { 7, 4 }, { 4, 1 }, { 4, 10 } };
+
+    // facelet indexes of the tables above
+    static final int[][] CORNER_FACELET_INDEX = new int[8][3];
+    static final int[][] EDGE_FACELET_INDEX = new int[12][2];
+
+    // color ids of every corner and edge cubie in its solved position
+    private static final byte[][] CORNER_COLORS = new byte[8][3];
+    private static final byte[][] EDGE_COLORS = new byte[12][2];
+
+    // cubie | orientation << 3 of the corner showing colors (a, b, c) in
+    // facelet order, at CORNER_AT[(a * 6 + b) * 6 + c]; likewise cubie |
+    // flip << 4 of the edge at EDGE_AT[a * 6 + b]
+    private static final int COLOR_COUNT = RubiksCube.COLORS.length;
+    private static final byte[] CORNER_AT = new byte[COLOR_COUNT * COLOR_COUNT * COLOR_COUNT];
+    private static final byte[] EDGE_AT = new byte[COLOR_COUNT * COLOR_COUNT];
+
+    // MOVE_CUBE[m]: the cubie cube of move m applied to a solved cube
+    static final CubieCube[] MOVE_CUBE = new CubieCube[RubiksCube.MOVE_COUNT];
+
+    static {
+        RubiksCube solved = new RubiksCube();
+        for (int i = 0; i < 8; i++) {
+            for (int k = 0; k < 3; k++) {
+                CORNER_FACELET_INDEX[i][k] = RubiksCube.FACELET_INDEX[CORNER_FACELETS[i][k][0]][CORNER_FACELETS[i][k][1]];
+                CORNER_COLORS[i][k] = solved.facelets[CORNER_FACELET_INDEX[i][k]];
+            }
+        }
+        for (int i = 0; i < 12; i++) {
+            for (int k = 0; k < 2; k++) {
+                EDGE_FACELET_INDEX[i][k] = RubiksCube.FACELET_INDEX[EDGE_FACELETS[i][k][0]][EDGE_FACELETS[i][k][1]];
+                EDGE_COLORS[i][k] = solved.facelets[EDGE_FACELET_INDEX[i][k]];
+            }
+        }
+        for (int j = 0; j < 8; j++) {
+            for (int ori = 0; ori < 3; ori++) {
+                byte[] c = CORNER_COLORS[j];
+                // the facelet at ori shows the U/D color, the others follow clockwise
+                int a = c[(3 - ori) % 3];
+                int b = c[(4 - ori) % 3];
+                int d = c[(5 - ori) % 3];
+                CORNER_AT[(a * COLOR_COUNT + b) * COLOR_COUNT + d] = (byte) (j | ori << 3);
+            }
+        }
+        for (int j = 0; j < 12; j++) {
+            EDGE_AT[EDGE_COLORS[j][0] * COLOR_COUNT + EDGE_COLORS[j][1]] = (byte) j;
+            EDGE_AT[EDGE_COLORS[j][1] * COLOR_COUNT + EDGE_COLORS[j][0]] = (byte) (j | 1 << 4);
+        }
+        for (int m = 0; m < RubiksCube.MOVE_COUNT; m++) {
+            RubiksCube moved = new RubiksCube();
+            moved.applyMove(m);
+            try {
+                MOVE_CUBE[m] = fromFacelets(moved);
+            } catch (IncorrectFormatException e) {
+                throw new IllegalStateException("Move table is inconsistent for " + RubiksCube.MOVE_NAMES[m], e);
+            }
+        }
+    }
+
+    // corner permutation and orientation (0, 1 or 2 clockwise twists)
+    byte[] cp = { 0, 1, 2, 3, 4, 5, 6, 7 };
+    byte[] co = new byte[8];
+    // edge permutation and orientation (0 or 1 flip)
+    byte[] ep = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+    byte[] eo = new byte[12];
+
+    /**
+     * Creates the solved cubie cube
+     */
+    public CubieCube() {
+    }
+
+    public CubieCube deepClone() {
+        CubieCube clone = new CubieCube();
+        System.arraycopy(this.cp, 0, clone.cp, 0, 8);
+        System.arraycopy(this.co, 0, clone.co, 0, 8);
+        System.arraycopy(this.ep, 0, clone.ep, 0, 12);
+        System.arraycopy(this.eo, 0, clone.eo, 0, 12);
+        return clone;
+    }
+
+    /**
+     * Converts a facelet cube to cubies and checks that it can be solved.
+     *
+     * @throws IncorrectFormatException with the first reason the state is
+     *                                  malformed or unsolvable
+     */
+    public static CubieCube fromFacelets(RubiksCube cube) throws IncorrectFormatException {
+        byte[] f = cube.facelets;
+        RubiksCube solved = RubiksCube.solvedCube;
+
+        int[] colorCount = new int[RubiksCube.COLORS.length];
+        for (byte color : f) {
+            colorCount[color]++;
+        }
+        for (int color = 0; color < colorCount.length; color++) {
+            if (colorCount[color] != 9) {
+                throw new IncorrectFormatException("Color " + RubiksCube.COLORS[color] + " appears "
+                        + colorCount[color] + " times, expected 9");
+            }
+        }
+        for (int[] center : CENTERS) {
+            char color = cube.colorAt(center[0], center[1]);
+            char expected = solved.colorAt(center[0], center[1]);
+            if (color != expected) {
+                throw new IncorrectFormatException("Center at row " + center[0] + " column " + center[1] + " is "
+                        + color + ", expected " + expected);
+            }
+        }
+
+        CubieCube result = new CubieCube();
+        byte upColor = CORNER_COLORS[0][0];
+        byte downColor = CORNER_COLORS[4][0];
+        int cornerSeen = 0;
+        for (int i = 0; i < 8; i++) {
+            int[] index = CORNER_FACELET_INDEX[i];
+            int ori = 0;
+            while (ori < 3 && f[index[ori]] != upColor && f[index[ori]] != downColor) {
+                ori++;
+            }
+            int cubie = -1;
+            if (ori < 3) {
+                byte color1 = f[index[(ori + 1) % 3]];
+                byte color2 = f[index[(ori + 2) % 3]];
+                for (int j = 0; j < 8; j++) {
+                    if (CORNER_COLORS[j][0] == f[index[ori]] && CORNER_COLORS[j][1] == color1
+                            && CORNER_COLORS[j][2] == color2) {
+                        cubie = j;
+                        break;
+                    }
+                }
+            }
+            if (cubie < 0) {
+                throw new IncorrectFormatException("Corner at " + CORNER_NAMES[i] + " has colors "
+                        + colors(f, index) + " which is not a corner of the cube");
+            }
+            if ((cornerSeen & (1 << cubie)) != 0) {
+                throw new IncorrectFormatException("Corner " + CORNER_NAMES[cubie] + " appears twice");
+            }
+            cornerSeen |= 1 << cubie;
+            result.cp[i] = (byte) cubie;
+            result.co[i] = (byte) ori;
+        }
+
+        int edgeSeen = 0;
+        for (int i = 0; i < 12; i++) {
+            int[] index = EDGE_FACELET_INDEX[i];
+            int cubie = -1;
+            int ori = 0;
+            for (int j = 0; j < 12 && cubie < 0; j++) {
+                if (EDGE_COLORS[j][0] == f[index[0]] && EDGE_COLORS[j][1] == f[index[1]]) {
+                    cubie = j;
+                } else if (EDGE_COLORS[j][0] == f[index[1]] && EDGE_COLORS[j][1] == f[index[0]]) {
+                    cubie = j;
+                    ori = 1;
+                }
+            }
+            if (cubie < 0) {
+                throw new IncorrectFormatException("Edge at " + EDGE_NAMES[i] + " has colors "
+                        + colors(f, index) + " which is not an edge of the cube");
+            }
+            if ((edgeSeen & (1 << cubie)) != 0) {
+                throw new IncorrectFormatException("Edge " + EDGE_NAMES[cubie] + " appears twice");
+            }
+            edgeSeen |= 1 << cubie;
+            result.ep[i] = (byte) cubie;
+            result.eo[i] = (byte) ori;
+        }
+
+        int twist = 0;
+        for (byte o : result.co) {
+            twist += o;
+        }
+        if (twist % 3 != 0) {
+            throw new IncorrectFormatException("Twisted corner: corner orientations sum to " + twist
+                    + ", not a multiple of 3");
+        }
+        int flip = 0;
+        for (byte o : result.eo) {
+            flip += o;
+        }
+        if (flip % 2 != 0) {
+            throw new IncorrectFormatException("Flipped edge: edge orientations sum to " + flip + ", not even");
+        }
+        if (parity(result.cp) != parity(result.ep)) {
+            throw new IncorrectFormatException("Odd permutation parity: corner and edge permutations differ in parity");
+        }
+        return result;
+    }
+
+    /**
+     * Overwrites this with the cubies of cube, which must be reachable from
+     * the solved cube. Unlike fromFacelets it neither checks nor allocates,
+     * for heuristics evaluated at every search node.
+     *
+     * @return this
+     */
+    CubieCube setFacelets(RubiksCube cube) {
+        byte[] f = cube.facelets;
+        for (int i = 0; i < 8; i++) {
+            int[] index = CORNER_FACELET_INDEX[i];
+            int corner = CORNER_AT[(f[index[0]] * COLOR_COUNT + f[index[1]]) * COLOR_COUNT + f[index[2]]];
+            this.cp[i] = (byte) (corner & 7);
+            this.co[i] = (byte) (corner >>> 3);
+        }
+        for (int i = 0; i < 12; i++) {
+            int[] index = EDGE_FACELET_INDEX[i];
+            int edge = EDGE_AT[f[index[0]] * COLOR_COUNT + f[index[1]]];
+            this.ep[i] = (byte) (edge & 15);
+            this.eo[i] = (byte) (edge >>> 4);
+        }
+        return this;
+    }
+
+    private static String colors(byte[] f, int[] index) {
+        StringBuilder sb = new StringBuilder();
+        for (int i : index) {
+            sb.append(RubiksCube.COLORS[f[i]]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the facelet cube showing this cubie state
+     */
+    public RubiksCube toFacelets() {
+        byte[] facelets = new RubiksCube().facelets;
+        for (int i = 0; i < 8; i++) {
+            for (int k = 0; k < 3; k++) {
+                facelets[CORNER_FACELET_INDEX[i][(k + this.co[i]) % 3]] = CORNER_COLORS[this.cp[i]][k];
+            }
+        }
+        for (int i = 0; i < 12; i++) {
+            for (int k = 0; k < 2; k++) {
+                facelets[EDGE_FACELET_INDEX[i][(k + this.eo[i]) % 2]] = EDGE_COLORS[this.ep[i]][k];
+            }
+        }
+        return new RubiksCube(facelets);
+    }
+
+    /**
+     * @return 0 for an even permutation, 1 for an odd one
+     */
+    static int parity(byte[] perm) {
+        int inversions = 0;
+        for (int i = 0; i < perm.length; i++) {
+            for (int j = i + 1; j < perm.length; j++) {
+                if (perm[i] > perm[j]) {
+                    inversions++;
+                }
+            }
+        }
+        return inversions & 1;
+    }
+
+    /**
+     * @return the corner twist coordinate, 0 .. 3^7 - 1
+     */
+    int getTwist() {
+        int twist = 0;
+        for (int i = 0; i < 7; i++) {
+            twist = 3 * twist + this.co[i];
+        }
+        return twist;
+    }
+
+    void setTwist(int twist) {
+        int sum = 0;
+        for (int i = 6; i >= 0; i--) {
+            this.co[i] = (byte) (twist % 3);
+            sum += this.co[i];
+            twist /= 3;
+        }
+        this.co[7] = (byte) ((3 - sum % 3) % 3);
+    }
+
+    /**
+     * @return the corner permutation coordinate, 0 .. 8! - 1
+     */
+    int getCornerPermutation() {
+        return rank(this.cp);
+    }
+
+    void setCornerPermutation(int rank) {
+        unrank(rank, this.cp);
+    }
+
+    /**
+     * @return the edge flip coordinate, 0 .. 2^11 - 1
+     */
+    int getFlip() {
+        int flip = 0;
+        for (int i = 0; i < 11; i++) {
+            flip = 2 * flip + this.eo[i];
+        }
+        return flip;
+    }
+
+    void setFlip(int flip) {
+        int sum = 0;
+        for (int i = 10; i >= 0; i--) {
+            this.eo[i] = (byte) (flip & 1);
+            sum += this.eo[i];
+            flip >>= 1;
+        }
+        this.eo[11] = (byte) (sum & 1);
+    }
+
+    /**
+     * @return which 4 positions hold the E-slice edges FR, FL, BL, BR,
+     *         0 .. C(12, 4) - 1, 0 when they are all in the slice
+     */
+    int getSlice() {
+        int slice = 0;
+        int x = 0;
+        for (int j = 11; j >= 0; j--) {
+            if (this.ep[j] >= 8) {
+                slice += binomial(11 - j, x + 1);
+                x++;
+            }
+        }
+        return slice;
+    }
+
+    void setSlice(int slice) {
+        int x = 4;
+        int other = 0;
+        for (int j = 0; j < 12; j++) {
+            if (x > 0 && slice - binomial(11 - j, x) >= 0) {
+                slice -= binomial(11 - j, x);
+                this.ep[j] = (byte) (12 - x);
+                x--;
+            } else {
+                this.ep[j] = (byte) other++;
+            }
+        }
+    }
+
+    /**
+     * @return permutation of the 8 U and D layer edges, valid when the E-slice
+     *         edges are in the slice
+     */
+    int getLayerEdgePermutation() {
+        return rank(Arrays.copyOf(this.ep, 8));
+    }
+
+    void setLayerEdgePermutation(int rank) {
+        byte[] perm = new byte[8];
+        unrank(rank, perm);
+        System.arraycopy(perm, 0, this.ep, 0, 8);
+    }
+
+    /**
+     * @return permutation of the 4 E-slice edges inside the slice
+     */
+    int getSlicePermutation() {
+        byte[] perm = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            perm[i] = (byte) (this.ep[8 + i] - 8);
+        }
+        return rank(perm);
+    }
+
+    void setSlicePermutation(int rank) {
+        byte[] perm = new byte[4];
+        unrank(rank, perm);
+        for (int i = 0; i < 4; i++) {
+            this.ep[8 + i] = (byte) (perm[i] + 8);
+        }
+    }
+
+    static int binomial(int n, int k) {
+        if (k < 0 || k > n) {
+            return 0;
+        }
+        int result = 1;
+        for (int i = 0; i < k; i++) {
+            result = result * (n - i) / (i + 1);
+        }
+        return result;
+    }
+
+    /**
+     * Lehmer rank of a permutation of 0 .. n-1
+     */
+    static int rank(byte[] perm) {
+        int n = perm.length;
+        int rank = 0;
+        for (int i = 0; i < n; i++) {
+            int smaller = 0;
+            for (int j = i + 1; j < n; j++) {
+                if (perm[j] < perm[i]) {
+                    smaller++;
+                }
+            }
+            rank = rank * (n - i) + smaller;
+        }
+        return rank;
+    }
+
+    static void unrank(int rank, byte[] perm) {
+        int n = perm.length;
+        int[] digits = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            digits[i] = rank % (n - i);
+            rank /= n - i;
+        }
+        boolean[] used = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int k = digits[i];
+            int value = 0;
+            while (used[value] || k > 0) {
+                if (!used[value]) {
+                    k--;
+                }
+                value++;
+            }
+            used[value] = true;
+            perm[i] = (byte) value;
+        }
+    }
+
+    /**
+     * Corner part of multiply, for tables that ignore edges
+     */
+    void cornerMultiply(CubieCube b) {
+        byte[] cp = new byte[8];
+        byte[] co = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            cp[i] = this.cp[b.cp[i]];
+            co[i] = (byte) ((this.co[b.cp[i]] + b.co[i]) % 3);
+        }
+        this.cp = cp;
+        this.co = co;
+    }
+
+    /**
+     * Edge part of multiply, for tables that ignore corners
+     */
+    void edgeMultiply(CubieCube b) {
+        byte[] ep = new byte[12];
+        byte[] eo = new byte[12];
+        for (int i = 0; i < 12; i++) {
+            ep[i] = this.ep[b.ep[i]];
+            eo[i] = (byte) ((this.eo[b.ep[i]] + b.eo[i]) % 2);
+        }
+        this.ep = ep;
+        this.eo = eo;
+    }
+
+    /**
+     * this = this * b, i.e. the state reached by applying b after this
+     */
+    void multiply(CubieCube b) {
+        byte[] cp = new byte[8];
+        byte[] co = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            cp[i] = this.cp[b.cp[i]];
+            co[i] = (byte) ((this.co[b.cp[i]] + b.co[i]) % 3);
+        }
+        byte[] ep = new byte[12];
+        byte[] eo = new byte[12];
+        for (int i = 0; i < 12; i++) {
+            ep[i] = this.ep[b.ep[i]];
+            eo[i] = (byte) ((this.eo[b.ep[i]] + b.eo[i]) % 2);
+        }
+        this.cp = cp;
+        this.co = co;
+        this.ep = ep;
+        this.eo = eo;
+    }
+
+    /**
+     * Applies a single move code, see RubiksCube.MOVE_NAMES
+     */
+    void applyMove(int move) {
+        multiply(MOVE_CUBE[move]);
+    }
+
+    public boolean isSolved() {
+        for (int i = 0; i < 8; i++) {
+            if (this.cp[i] != i || this.co[i] != 0) {
+                return false;
+            }
+        }
+        for (int i = 0; i < 12; i++) {
+            if (this.ep[i] != i || this.eo[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
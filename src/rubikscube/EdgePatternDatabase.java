@@ -0,0 +1,145 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Exact distances for the positions and flips of 6 of the 12 edges,
+ * 12!/6! * 2^6 = 42,577,920 entries. The index is the rank of the 6 tracked
+ * positions * 64 + their flips. Two tables over disjoint edge sets are
+ * combined with the corner table in CubeEstimate.estimateKorf.
+ */
+class EdgePatternDatabase extends NibblePatternDatabase {
+    static final int TRACKED = 6;
+    static final int PLACEMENTS = 12 * 11 * 10 * 9 * 8 * 7;
+
+    // EDGE_DEST[m * 12 + p]: position an edge at p moves to under move m
+    private static final byte[] EDGE_DEST = new byte[RubiksCube.MOVE_COUNT * 12];
+    // flip added to that edge by the move
+    private static final byte[] EDGE_FLIP = new byte[RubiksCube.MOVE_COUNT * 12];
+
+    static {
+        for (int m = 0; m < RubiksCube.MOVE_COUNT; m++) {
+            CubieCube move = CubieCube.MOVE_CUBE[m];
+            for (int i = 0; i < 12; i++) {
+                EDGE_DEST[m * 12 + move.ep[i]] = (byte) i;
+                EDGE_FLIP[m * 12 + move.ep[i]] = move.eo[i];
+            }
+        }
+    }
+
+    // volatile so that searches on several threads read it without locking
+    private static volatile EdgePatternDatabase[] instances;
+
+    private final String name;
+    // trackedIndex[edge]: slot of the edge cubie in this table, or -1
+    private final int[] trackedIndex = new int[12];
+    // scratch for successors, generation is single threaded
+    private final int[] positions = new int[TRACKED];
+    private final int[] moved = new int[TRACKED];
+    // scratch for index, which searches call on several threads
+    private static final ThreadLocal<int[]> INDEX_POSITIONS = ThreadLocal.withInitial(() -> new int[TRACKED]);
+
+    EdgePatternDatabase(String name, int[] edges) {
+        super(PLACEMENTS * 64);
+        this.name = name;
+        Arrays.fill(this.trackedIndex, -1);
+        for (int k = 0; k < TRACKED; k++) {
+            this.trackedIndex[edges[k]] = k;
+        }
+    }
+
+    /**
+     * @return the two shared tables (UR..DF and DL..BR), loaded or generated
+     *         on first call
+     */
+    static EdgePatternDatabase[] getInstances() {
+        EdgePatternDatabase[] dbs = instances;
+        if (dbs != null) {
+            return dbs;
+        }
+        synchronized (EdgePatternDatabase.class) {
+            if (instances == null) {
+                dbs = new EdgePatternDatabase[] {
+                        new EdgePatternDatabase("edges0", new int[] { 0, 1, 2, 3, 4, 5 }),
+                        new EdgePatternDatabase("edges1", new int[] { 6, 7, 8, 9, 10, 11 })
+                };
+                for (EdgePatternDatabase db : dbs) {
+                    db.loadOrGenerate();
+                }
+                instances = dbs;
+            }
+            return instances;
+        }
+    }
+
+    @Override
+    String name() {
+        return this.name;
+    }
+
+    @Override
+    int index(CubieCube cube) {
+        int[] positions = INDEX_POSITIONS.get();
+        int flips = 0;
+        for (int i = 0; i < 12; i++) {
+            int k = this.trackedIndex[cube.ep[i]];
+            if (k >= 0) {
+                positions[k] = i;
+                flips |= cube.eo[i] << k;
+            }
+        }
+        return encode(positions, flips);
+    }
+
+    private static int encode(int[] positions, int flips) {
+        int rank = 0;
+        for (int k = 0; k < TRACKED; k++) {
+            int p = positions[k];
+            for (int j = 0; j < k; j++) {
+                if (positions[j] < positions[k]) {
+                    p--;
+                }
+            }
+            rank = rank * (12 - k) + p;
+        }
+        return rank * 64 + flips;
+    }
+
+    private static void decode(int index, int[] positions) {
+        int rank = index >>> 6;
+        int[] digits = new int[TRACKED];
+        for (int k = TRACKED - 1; k >= 0; k--) {
+            digits[k] = rank % (12 - k);
+            rank /= 12 - k;
+        }
+        boolean[] used = new boolean[12];
+        for (int k = 0; k < TRACKED; k++) {
+            int d = digits[k];
+            int p = 0;
+            while (used[p] || d > 0) {
+                if (!used[p]) {
+                    d--;
+                }
+                p++;
+            }
+            used[p] = true;
+            positions[k] = p;
+        }
+    }
+
+    @Override
+    void successors(int index, int[] next) {
+        int[] positions = this.positions;
+        int[] moved = this.moved;
+        decode(index, positions);
+        int flips = index & 63;
+        for (int m = 0; m < RubiksCube.MOVE_COUNT; m++) {
+            int newFlips = flips;
+            for (int k = 0; k < TRACKED; k++) {
+                moved[k] = EDGE_DEST[m * 12 + positions[k]];
+                newFlips ^= EDGE_FLIP[m * 12 + positions[k]] << k;
+            }
+            next[m] = encode(moved, newFlips);
+        }
+    }
+}
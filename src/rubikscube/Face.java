@@ -3,10 +3,6 @@ package rubikscube;
 import java.util.HashMap;
 import java.util.Map;
 
-enum FaceType {
-    F, B, R, L, U, D
-}
-
 public class Face {
     // face mapping index 3 element as a group 3 rows on face and 4 edges adjacent
     // to the face with order [top, right, bottom, left]
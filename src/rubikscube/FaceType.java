@@ -0,0 +1,5 @@
+package rubikscube;
+
+enum FaceType {
+    F, B, R, L, U, D
+}
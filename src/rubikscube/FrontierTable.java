@@ -0,0 +1,124 @@
+package rubikscube;
+
+/**
+ * Concurrent set of newly found states for one level of a parallel
+ * breadth-first search, keeping for every state key the smallest candidate
+ * code offered. Keys are spread over independently locked stripes, each an
+ * open addressing table of long keys and long codes, so threads only contend
+ * when they hit the same stripe.
+ */
+class FrontierTable {
+    private static final int STRIPE_BITS = 6;
+    private static final long EMPTY = 0L;
+    private static final float MAX_LOAD = 0.75f;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    // key 0 marks an empty slot, so it is stored on the side
+    private boolean hasZeroKey;
+    private long zeroCode;
+
+    FrontierTable() {
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Records code for key, keeping the smaller code if key is already present
+     */
+    void offer(long key, long code) {
+        if (key == EMPTY) {
+            synchronized (this) {
+                if (!this.hasZeroKey || code < this.zeroCode) {
+                    this.zeroCode = code;
+                }
+                this.hasZeroKey = true;
+            }
+            return;
+        }
+        // top bits pick the stripe, the bits below them the slot
+        long hash = key * 0x9E3779B97F4A7C15L;
+        Stripe stripe = this.stripes[(int) (hash >>> (64 - STRIPE_BITS))];
+        synchronized (stripe) {
+            stripe.offer(key, (int) (hash >>> (32 - STRIPE_BITS)), code);
+        }
+    }
+
+    synchronized int size() {
+        int size = this.hasZeroKey ? 1 : 0;
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Copies every key and its kept code into keys and codes, in no
+     * particular order; both arrays must hold size() entries
+     */
+    synchronized void drain(long[] keys, long[] codes) {
+        int n = 0;
+        if (this.hasZeroKey) {
+            keys[n] = EMPTY;
+            codes[n++] = this.zeroCode;
+        }
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.keys.length; i++) {
+                    if (stripe.keys[i] != EMPTY) {
+                        keys[n] = stripe.keys[i];
+                        codes[n++] = stripe.codes[i];
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Stripe {
+        long[] keys = new long[1 << 10];
+        long[] codes = new long[1 << 10];
+        int size;
+
+        void offer(long key, int hash, long code) {
+            int mask = this.keys.length - 1;
+            int i = hash & mask;
+            while (this.keys[i] != EMPTY) {
+                if (this.keys[i] == key) {
+                    if (code < this.codes[i]) {
+                        this.codes[i] = code;
+                    }
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = key;
+            this.codes[i] = code;
+            this.size++;
+            if (this.size > this.keys.length * MAX_LOAD) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = this.keys;
+            long[] oldCodes = this.codes;
+            this.keys = new long[oldKeys.length << 1];
+            this.codes = new long[oldKeys.length << 1];
+            int mask = this.keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == EMPTY) {
+                    continue;
+                }
+                int i = (int) ((oldKeys[j] * 0x9E3779B97F4A7C15L) >>> (32 - STRIPE_BITS)) & mask;
+                while (this.keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                this.keys[i] = oldKeys[j];
+                this.codes[i] = oldCodes[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package rubikscube;
+
+import java.io.PrintStream;
+
+/**
+ * Iterative-deepening A*: repeated depth-first searches bounded by
+ * f = g + Solver.heuristic (CubeEstimate.estimate by default), each bound
+ * raised to the smallest f that exceeded the previous one. Moves are made and unmade on a single cube, so
+ * memory is O(solution depth). A node inside the pattern database goal ball
+ * ends the search with the stored path if g plus its exact depth there is
+ * within the bound; heuristics such as korf do not include that depth, so a
+ * hit deeper than the bound only raises the next bound.
+ */
+public class IDAStar {
+    static final int DEFAULT_MAX_DEPTH = 20;
+
+    private static final int FOUND = -1;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final int maxDepth;
+    private final int[] path;
+    private final SearchStats stats;
+    // where the per-bound progress lines go
+    private final PrintStream log;
+
+    private RubiksCube cube;
+    private String goalPath;
+    private int solutionDepth;
+    private long nodes;
+
+    public IDAStar() {
+        this(DEFAULT_MAX_DEPTH);
+    }
+
+    public IDAStar(int maxDepth) {
+        this(maxDepth, new SearchStats());
+    }
+
+    IDAStar(int maxDepth, SearchStats stats) {
+        this(maxDepth, stats, System.out);
+    }
+
+    IDAStar(int maxDepth, SearchStats stats, PrintStream log) {
+        this.maxDepth = maxDepth;
+        this.path = new int[maxDepth + 1];
+        this.stats = stats;
+        this.log = log;
+    }
+
+    /**
+     * Searches from start, which is left untouched
+     */
+    Solver.Result solve(RubiksCube start) {
+        this.cube = start.deepClone();
+        long totalNodes = 0;
+        int bound = this.stats.heuristic(this.cube);
+        while (bound <= this.maxDepth) {
+            this.nodes = 0;
+            long iterationStart = System.nanoTime();
+            int next = search(0, bound, -1);
+            long elapsed = System.nanoTime() - iterationStart;
+            totalNodes += this.nodes;
+            this.log.printf("IDA* bound %d: %d nodes in %d ms (%.0f nodes/s)%n", bound, this.nodes,
+                    elapsed / 1_000_000, this.nodes * 1e9 / Math.max(1, elapsed));
+            if (next == FOUND) {
+                return new Solver.Result(solution(), totalNodes, null);
+            }
+            if (next == INFINITY) {
+                break;
+            }
+            bound = next;
+        }
+        return new Solver.Result(null, totalNodes, "Depth limit reached");
+    }
+
+    /**
+     * @return FOUND, or the smallest f above bound seen below this node
+     */
+    private int search(int g, int bound, int lastMove) {
+        this.nodes++;
+        int f = g + this.stats.heuristic(this.cube);
+        if (f > bound) {
+            return f;
+        }
+        this.stats.expanded++;
+        int pdbDepth = this.stats.patternDatabaseDepth(this.cube);
+        if (pdbDepth >= 0 && g + pdbDepth > bound) {
+            return g + pdbDepth;
+        }
+        String pdbMoves = pdbDepth >= 0 ? this.stats.reconstruct(this.cube) : null;
+        if (pdbMoves != null || this.cube.isSolved()) {
+            this.solutionDepth = g;
+            this.goalPath = pdbMoves == null ? "" : pdbMoves;
+            return FOUND;
+        }
+        if (g == this.maxDepth) {
+            return INFINITY;
+        }
+        int min = INFINITY;
+        int successors = MoveAutomaton.successors(lastMove);
+        for (int move = 0; move < RubiksCube.MOVE_COUNT; move++) {
+            if (!MoveAutomaton.allowed(successors, move)) {
+                continue;
+            }
+            this.stats.applyMove(this.cube, move);
+            this.stats.generated++;
+            this.path[g] = move;
+            int t = search(g + 1, bound, move);
+            if (t == FOUND) {
+                return FOUND;
+            }
+            this.stats.applyMove(this.cube, RubiksCube.inverseOf(move));
+            if (t < min) {
+                min = t;
+            }
+        }
+        return min;
+    }
+
+    private String solution() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < this.solutionDepth; i++) {
+            sb.append("|").append(RubiksCube.MOVE_NAMES[this.path[i]]);
+        }
+        if (!this.goalPath.isEmpty()) {
+            sb.append("|").append(this.goalPath);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package rubikscube;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Pattern database file read through FileChannel.map, so lookups run
+ * against the page cache and several solver processes share one copy.
+ *
+ * Layout, big-endian:
+ * <pre>
+ *   0  int   magic "RPDB"
+ *   4  int   format version
+ *   8  int   BFS depth
+ *  12  int   number of states
+ *  16  int   slot capacity, a power of two
+ *  20  long  fingerprint of the Zobrist keys (solved cube key)
+ *  28  long  CRC32 of everything after the header
+ *  64  long[capacity]      keys, hashed like StateTable
+ *      long[capacity * 3]  packed states (RubiksCube.pack), all 0 for an
+ *                          empty slot
+ *      byte[capacity]      depth of the state in the same slot
+ * </pre>
+ * A lookup compares the key and then the packed state, so a state whose key
+ * collides with a stored one is not mistaken for it. Paths are not stored;
+ * PatternDatabase rebuilds them by greedy descent.
+ */
+class MappedPatternTable {
+    private static final int MAGIC = 0x52504442; // "RPDB"
+    static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final float MAX_LOAD = 0.75f;
+    private static final int STATE_BYTES = 8 * RubiksCube.PACKED_LONGS;
+
+    private final MappedByteBuffer keys;
+    private final MappedByteBuffer states;
+    private final MappedByteBuffer depths;
+    private final int mask;
+    private final int size;
+
+    private MappedPatternTable(MappedByteBuffer keys, MappedByteBuffer states, MappedByteBuffer depths,
+            int capacity, int size) {
+        this.keys = keys;
+        this.states = states;
+        this.depths = depths;
+        this.mask = capacity - 1;
+        this.size = size;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - Integer.bitCount(mask)));
+    }
+
+    /**
+     * @return the depth of state, or -1 if absent
+     */
+    int get(RubiksCube state) {
+        long key = state.stateKey();
+        int i = slot(key, this.mask);
+        while (this.states.getLong(i * STATE_BYTES) != 0) {
+            if (this.keys.getLong(i << 3) == key && sameState(i, state)) {
+                return this.depths.get(i);
+            }
+            i = (i + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    private boolean sameState(int i, RubiksCube state) {
+        for (int word = 0; word < RubiksCube.PACKED_LONGS; word++) {
+            if (this.states.getLong(i * STATE_BYTES + (word << 3)) != state.packedWord(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Writes the states of table to file, through a temporary file renamed at
+     * the end so that readers never see a partial table; the temporary file
+     * is deleted if writing fails
+     */
+    static void write(File file, PathTable table) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            writeTable(tmp, table);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+    }
+
+    private static void writeTable(File tmp, PathTable table) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (table.size() / MAX_LOAD)) - 1) << 1;
+        long keyBytes = 8L * capacity;
+        long stateBytes = (long) STATE_BYTES * capacity;
+        try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw"); FileChannel channel = raf.getChannel()) {
+            raf.setLength(HEADER_SIZE + keyBytes + stateBytes + capacity);
+            MappedByteBuffer keys = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, keyBytes);
+            MappedByteBuffer states = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + keyBytes,
+                    stateBytes);
+            MappedByteBuffer depths = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + keyBytes + stateBytes, capacity);
+            int mask = capacity - 1;
+            for (int entry = 0; entry < table.size(); entry++) {
+                long key = table.key(entry);
+                int i = slot(key, mask);
+                while (states.getLong(i * STATE_BYTES) != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys.putLong(i << 3, key);
+                for (int word = 0; word < RubiksCube.PACKED_LONGS; word++) {
+                    states.putLong(i * STATE_BYTES + (word << 3), table.stateWord(entry, word));
+                }
+                depths.put(i, (byte) table.depth(entry));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(keys.duplicate());
+            crc.update(states.duplicate());
+            crc.update(depths.duplicate());
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(table.maxDepth()).putInt(table.size()).putInt(capacity)
+                    .putLong(new RubiksCube().stateKey()).putLong(crc.getValue());
+            header.rewind();
+            channel.write(header, 0);
+            keys.force();
+            states.force();
+            depths.force();
+        }
+    }
+
+    /**
+     * Maps file and checks its header and checksum
+     *
+     * @return the table, or null if the file is missing
+     * @throws IOException if the file is damaged or was written for another
+     *                     depth, format version or set of Zobrist keys
+     */
+    static MappedPatternTable open(File file, int depth) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.read(header, 0) != HEADER_SIZE) {
+                throw new IOException("truncated header");
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("not a pattern database file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("format version " + version + ", expected " + VERSION);
+            }
+            int fileDepth = header.getInt();
+            if (fileDepth != depth) {
+                throw new IOException("depth " + fileDepth + ", expected " + depth);
+            }
+            int size = header.getInt();
+            int capacity = header.getInt();
+            if (header.getLong() != new RubiksCube().stateKey()) {
+                throw new IOException("written with different Zobrist keys");
+            }
+            long checksum = header.getLong();
+            long keyBytes = 8L * capacity;
+            long stateBytes = (long) STATE_BYTES * capacity;
+            if (Integer.bitCount(capacity) != 1
+                    || channel.size() != HEADER_SIZE + keyBytes + stateBytes + capacity) {
+                throw new IOException("wrong file length");
+            }
+            // the mappings stay valid after the channel is closed
+            MappedByteBuffer keys = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, keyBytes);
+            MappedByteBuffer states = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + keyBytes, stateBytes);
+            MappedByteBuffer depths = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + keyBytes + stateBytes,
+                    capacity);
+            CRC32 crc = new CRC32();
+            crc.update(keys.duplicate());
+            crc.update(states.duplicate());
+            crc.update(depths.duplicate());
+            if (crc.getValue() != checksum) {
+                throw new IOException("checksum mismatch");
+            }
+            return new MappedPatternTable(keys, states, depths, capacity, size);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package rubikscube;
+
+/**
+ * Canonical move sequences as a finite-state automaton shared by the pattern
+ * database BFS and every search engine. A state is the face of the last move
+ * (plus a start state); its successor mask drops the same face again, since
+ * two turns of one face are one turn, and of two opposite faces, which
+ * commute, only allows the lower face first. This takes the branching factor
+ * from 18 to about 13.35 without losing any shortest solution.
+ *
+ * A search node keeps the last move, fetches its mask once with
+ * {@link #successors(int)} and tests each move with one bit.
+ */
+final class MoveAutomaton {
+    static final int START = 0;
+    static final int STATE_COUNT = 7;
+
+    // SUCCESSORS[state]: bit m set if move m may follow
+    private static final int[] SUCCESSORS = new int[STATE_COUNT];
+    // NEXT[m]: state after move m
+    private static final byte[] NEXT = new byte[RubiksCube.MOVE_COUNT];
+
+    static {
+        int all = (1 << RubiksCube.MOVE_COUNT) - 1;
+        SUCCESSORS[START] = all;
+        for (int face = 0; face < STATE_COUNT - 1; face++) {
+            int mask = all & ~faceMask(face);
+            // F B and B F reach the same cube; keep only the lower face first
+            if ((face & 1) == 1) {
+                mask &= ~faceMask(face ^ 1);
+            }
+            SUCCESSORS[face + 1] = mask;
+        }
+        for (int move = 0; move < RubiksCube.MOVE_COUNT; move++) {
+            NEXT[move] = (byte) (RubiksCube.faceOf(move) + 1);
+        }
+    }
+
+    private MoveAutomaton() {
+    }
+
+    private static int faceMask(int face) {
+        return 7 << (face * 3);
+    }
+
+    /**
+     * @return the state after move, -1 for no move giving START
+     */
+    static int stateAfter(int move) {
+        return move < 0 ? START : NEXT[move];
+    }
+
+    /**
+     * @return the moves allowed after lastMove (-1 for none) as a bit mask
+     */
+    static int successors(int lastMove) {
+        return SUCCESSORS[stateAfter(lastMove)];
+    }
+
+    static boolean allowed(int mask, int move) {
+        return (mask >>> move & 1) != 0;
+    }
+}
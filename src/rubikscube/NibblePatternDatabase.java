@@ -0,0 +1,112 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Exact distance-to-solved table over a dense coordinate of the cube, stored
+ * as 4 bits per entry. Subclasses define the coordinate and its moves; the
+ * table is filled by breadth-first search one depth at a time.
+ */
+abstract class NibblePatternDatabase {
+    private static final int UNKNOWN = 0xF;
+
+    private final int size;
+    // two entries per byte, the even index in the low nibble
+    private final byte[] table;
+
+    NibblePatternDatabase(int size) {
+        this.size = size;
+        this.table = new byte[(size + 1) / 2];
+    }
+
+    /**
+     * @return number of coordinate values
+     */
+    int size() {
+        return this.size;
+    }
+
+    abstract int index(CubieCube cube);
+
+    /**
+     * Writes the 18 successors of index, in move code order, into next
+     */
+    abstract void successors(int index, int[] next);
+
+    abstract String name();
+
+    final int get(int index) {
+        return (this.table[index >> 1] >> ((index & 1) << 2)) & 0xF;
+    }
+
+    private void set(int index, int depth) {
+        int shift = (index & 1) << 2;
+        this.table[index >> 1] = (byte) ((this.table[index >> 1] & ~(0xF << shift)) | (depth << shift));
+    }
+
+    /**
+     * @return the exact number of moves needed to solve this part of cube
+     */
+    int lookup(CubieCube cube) {
+        return get(index(cube));
+    }
+
+    /**
+     * Breadth-first search from the solved coordinate. Once more than half of
+     * the table is known it is cheaper to scan the unknown entries and look
+     * for a neighbour at the current depth.
+     */
+    void generate() {
+        Arrays.fill(this.table, (byte) 0xFF);
+        set(index(new CubieCube()), 0);
+        int[] next = new int[RubiksCube.MOVE_COUNT];
+        long known = 1;
+        long start = System.currentTimeMillis();
+        for (int depth = 0; depth < UNKNOWN - 1 && known < this.size; depth++) {
+            long found = 0;
+            boolean backward = known > this.size / 2;
+            for (int i = 0; i < this.size; i++) {
+                int value = get(i);
+                if (backward) {
+                    if (value != UNKNOWN) {
+                        continue;
+                    }
+                    successors(i, next);
+                    for (int n : next) {
+                        if (get(n) == depth) {
+                            set(i, depth + 1);
+                            found++;
+                            break;
+                        }
+                    }
+                } else if (value == depth) {
+                    successors(i, next);
+                    for (int n : next) {
+                        if (get(n) == UNKNOWN) {
+                            set(n, depth + 1);
+                            found++;
+                        }
+                    }
+                }
+            }
+            if (found == 0) {
+                break;
+            }
+            known += found;
+            System.out.println(name() + " depth " + (depth + 1) + ": " + found + " entries ("
+                    + (System.currentTimeMillis() - start) / 1000.0 + "s)");
+        }
+    }
+
+    /**
+     * Loads the table from the table directory, generating and saving it on
+     * first use
+     */
+    void loadOrGenerate() {
+        if (TableFiles.read(name(), this.table)) {
+            return;
+        }
+        generate();
+        TableFiles.write(name(), this.table);
+    }
+}
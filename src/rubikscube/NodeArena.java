@@ -0,0 +1,208 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Search nodes kept in parallel primitive arrays and addressed by index:
+ * packed facelets, Zobrist key, parent index, last move code, g and h. A node
+ * costs 24 + 8 + 4 + 3 = 39 bytes plus growth slack, no per-node objects
+ * are allocated, and a path is rebuilt from the parent links only when it is
+ * needed. The open lists hold plain int indexes too, so a generated node
+ * boxes nothing.
+ */
+class NodeArena {
+    static final int NO_PARENT = -1;
+    private static final int BYTES_PER_NODE = 8 * RubiksCube.PACKED_LONGS + 8 + 4 + 3;
+
+    private long[] cubes;
+    private long[] keys;
+    private int[] parents;
+    private byte[] moves;
+    private byte[] g;
+    private byte[] h;
+    private int size;
+
+    NodeArena() {
+        this(1 << 12);
+    }
+
+    NodeArena(int capacity) {
+        allocate(Math.max(16, capacity));
+    }
+
+    private void allocate(int capacity) {
+        this.cubes = this.cubes == null ? new long[capacity * RubiksCube.PACKED_LONGS]
+                : Arrays.copyOf(this.cubes, capacity * RubiksCube.PACKED_LONGS);
+        this.keys = this.keys == null ? new long[capacity] : Arrays.copyOf(this.keys, capacity);
+        this.parents = this.parents == null ? new int[capacity] : Arrays.copyOf(this.parents, capacity);
+        this.moves = this.moves == null ? new byte[capacity] : Arrays.copyOf(this.moves, capacity);
+        this.g = this.g == null ? new byte[capacity] : Arrays.copyOf(this.g, capacity);
+        this.h = this.h == null ? new byte[capacity] : Arrays.copyOf(this.h, capacity);
+    }
+
+    /**
+     * Stores a node for cube, reached from parent by move (-1 for the root)
+     *
+     * @return the index of the new node
+     */
+    int add(RubiksCube cube, int parent, int move, int g, int h) {
+        if (this.size == this.keys.length) {
+            allocate(this.size * 2);
+        }
+        int node = this.size++;
+        cube.pack(this.cubes, node * RubiksCube.PACKED_LONGS);
+        this.keys[node] = cube.stateKey();
+        this.parents[node] = parent;
+        this.moves[node] = (byte) move;
+        this.g[node] = (byte) g;
+        this.h[node] = (byte) Math.min(h, Byte.MAX_VALUE);
+        return node;
+    }
+
+    /**
+     * Overwrites dest with the cube of node
+     */
+    void cube(int node, RubiksCube dest) {
+        dest.unpack(this.cubes, node * RubiksCube.PACKED_LONGS, this.keys[node]);
+    }
+
+    long key(int node) {
+        return this.keys[node];
+    }
+
+    int parent(int node) {
+        return this.parents[node];
+    }
+
+    /**
+     * @return the move code that led to node, -1 for the root
+     */
+    int move(int node) {
+        return this.moves[node];
+    }
+
+    int g(int node) {
+        return this.g[node];
+    }
+
+    int h(int node) {
+        return this.h[node];
+    }
+
+    int f(int node) {
+        return this.g[node] + this.h[node];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the |-separated moves from the root to node
+     */
+    String path(int node) {
+        String[] names = new String[g(node)];
+        for (int n = node; this.parents[n] != NO_PARENT; n = this.parents[n]) {
+            names[this.g[n] - 1] = RubiksCube.MOVE_NAMES[this.moves[n]];
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String name : names) {
+            sb.append("|").append(name);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d nodes, capacity %d, %d bytes/node", this.size, this.keys.length, BYTES_PER_NODE);
+    }
+
+    /**
+     * A* open list of node indexes
+     */
+    interface OpenList {
+        void offer(int node);
+
+        /**
+         * @return the next node to expand, -1 if the list is empty
+         */
+        int poll();
+
+        int size();
+
+        /**
+         * @return entries refused or skipped as duplicates
+         */
+        default long dropped() {
+            return 0;
+        }
+    }
+
+    /**
+     * Binary min-heap of node indexes ordered by f, sifting exactly as
+     * java.util.PriorityQueue does so the expansion order is unchanged
+     */
+    static final class Heap implements OpenList {
+        private final NodeArena nodes;
+        private int[] heap = new int[1 << 10];
+        private int size;
+
+        Heap(NodeArena nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public void offer(int node) {
+            if (this.size == this.heap.length) {
+                this.heap = Arrays.copyOf(this.heap, this.size * 2);
+            }
+            int f = this.nodes.f(node);
+            int k = this.size++;
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                int e = this.heap[parent];
+                if (f >= this.nodes.f(e)) {
+                    break;
+                }
+                this.heap[k] = e;
+                k = parent;
+            }
+            this.heap[k] = node;
+        }
+
+        @Override
+        public int poll() {
+            if (this.size == 0) {
+                return -1;
+            }
+            int result = this.heap[0];
+            int n = --this.size;
+            if (n > 0) {
+                int x = this.heap[n];
+                int f = this.nodes.f(x);
+                int k = 0;
+                int half = n >>> 1;
+                while (k < half) {
+                    int child = 2 * k + 1;
+                    int c = this.heap[child];
+                    int right = child + 1;
+                    if (right < n && this.nodes.f(c) > this.nodes.f(this.heap[right])) {
+                        c = this.heap[child = right];
+                    }
+                    if (f <= this.nodes.f(c)) {
+                        break;
+                    }
+                    this.heap[k] = c;
+                    k = child;
+                }
+                this.heap[k] = x;
+            }
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package rubikscube;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hash-distributed A* (HDA*). Every state is owned by the worker picked by
+ * its Zobrist key; each worker keeps its own open list and best-g table and
+ * only ever touches states it owns. Successors are posted to the owner's
+ * inbox, a lock-free queue with many producers and one consumer.
+ *
+ * Each worker stores the nodes it owns in its own NodeArena, and messages
+ * carry the packed facelets rather than a cube. A parent link names a node
+ * in any worker's arena, so the solution path is only read back after all
+ * workers have stopped. A worker with nothing to do spins briefly, then
+ * parks until a sender or the end of the search wakes it.
+ *
+ * Termination: outstanding counts the nodes sitting in inboxes or open
+ * lists. A node is counted before it is posted and uncounted only after it
+ * was dropped or its successors were posted, so the count reaches zero only
+ * when no worker holds or can receive any work.
+ */
+public class ParallelAStar {
+    // idle polls before a worker parks, and the longest it parks for
+    private static final int IDLE_SPINS = 64;
+    private static final long PARK_NANOS = 1_000_000;
+
+    private final int stepLimit;
+    private final Worker[] workers;
+    private final SearchStats stats;
+
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong expansions = new AtomicLong();
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final AtomicReference<Solver.Result> result = new AtomicReference<>();
+    // node that reached the goal, see ref; written once by the winning finish
+    private volatile int goal = -1;
+
+    public ParallelAStar(int threads) {
+        this(threads, Solver.STEP_LIMIT, new SearchStats());
+    }
+
+    /**
+     * @param stepLimit expansions over all workers before the search gives
+     *                  up, as Solver.STEP_LIMIT does for the sequential A*
+     */
+    public ParallelAStar(int threads, int stepLimit) {
+        this(threads, stepLimit, new SearchStats());
+    }
+
+    /**
+     * @param stats receives the counters of all workers when a solve ends
+     */
+    ParallelAStar(int threads, int stepLimit, SearchStats stats) {
+        this.stepLimit = stepLimit;
+        this.stats = stats;
+        this.workers = new Worker[Math.max(1, threads)];
+        for (int i = 0; i < this.workers.length; i++) {
+            this.workers[i] = new Worker(i);
+        }
+    }
+
+    /**
+     * Searches from start, which is left untouched; steps counts the
+     * expansions of all workers
+     */
+    Solver.Result solve(RubiksCube start) {
+        long startTime = System.nanoTime();
+        send(new Message(start, NodeArena.NO_PARENT, -1, 0));
+        Thread[] threads = new Thread[this.workers.length];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(this.workers[i], "hda-worker-" + i);
+            this.workers[i].thread = threads[i];
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (Worker worker : this.workers) {
+                this.stats.add(worker.stats);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.done.set(true);
+            return new Solver.Result(null, this.expansions.get(), "Interrupted");
+        }
+        long elapsed = System.nanoTime() - startTime;
+        long total = this.expansions.get();
+        System.out.printf("HDA* %d workers: %d expansions in %d ms (%.0f expansions/s)%n", this.workers.length,
+                total, elapsed / 1_000_000, total * 1e9 / Math.max(1, elapsed));
+        Solver.Result outcome = this.result.get();
+        if (outcome == null) {
+            return new Solver.Result(null, total, "Search space exhausted");
+        }
+        if (this.goal >= 0) {
+            // the workers have been joined, so every arena can be read
+            return new Solver.Result(path(this.goal) + outcome.solution, outcome.steps, null);
+        }
+        return outcome;
+    }
+
+    /**
+     * Per-worker expansions and table sizes of the last solve, to check load
+     * balance
+     */
+    String workerReport() {
+        StringBuilder sb = new StringBuilder();
+        for (Worker worker : this.workers) {
+            sb.append(String.format("%n  hda-worker-%d: %d expansions, %d states", worker.id, worker.stats.expanded,
+                    worker.best.size()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return a reference to node in the arena of worker, usable as a parent
+     *         link by any worker
+     */
+    private int ref(Worker worker, int node) {
+        return node * this.workers.length + worker.id;
+    }
+
+    /**
+     * @return the |-separated moves from the root to the referenced node
+     */
+    private String path(int ref) {
+        StringBuilder sb = new StringBuilder();
+        for (int r = ref;;) {
+            NodeArena nodes = this.workers[r % this.workers.length].nodes;
+            int node = r / this.workers.length;
+            r = nodes.parent(node);
+            if (r == NodeArena.NO_PARENT) {
+                return sb.toString();
+            }
+            sb.insert(0, "|" + RubiksCube.MOVE_NAMES[nodes.move(node)]);
+        }
+    }
+
+    private int owner(long key) {
+        // top bits of the Fibonacci hash, scaled to the worker count
+        return (int) (((key * 0x9E3779B97F4A7C15L) >>> 32) * this.workers.length >>> 32);
+    }
+
+    private void send(Message message) {
+        this.outstanding.incrementAndGet();
+        Worker owner = this.workers[owner(message.key)];
+        owner.inbox.offer(message);
+        if (owner.parked) {
+            LockSupport.unpark(owner.thread);
+        }
+    }
+
+    /**
+     * Ends the search for every worker; the first result wins
+     */
+    private void finish(Solver.Result outcome) {
+        finish(outcome, -1);
+    }
+
+    /**
+     * @param goal reference to the node the solution path leads to, whose
+     *             moves go in front of outcome.solution; -1 if outcome is
+     *             complete
+     */
+    private void finish(Solver.Result outcome, int goal) {
+        if (outcome != null && this.result.compareAndSet(null, outcome)) {
+            this.goal = goal;
+        }
+        this.done.set(true);
+        for (Worker worker : this.workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    /**
+     * A successor on its way to the worker that owns its state
+     */
+    private static final class Message {
+        final long[] cube = new long[RubiksCube.PACKED_LONGS];
+        final long key;
+        // ref of the parent node, NodeArena.NO_PARENT for the root
+        final int parent;
+        final int move;
+        final int g;
+
+        Message(RubiksCube cube, int parent, int move, int g) {
+            cube.pack(this.cube, 0);
+            this.key = cube.stateKey();
+            this.parent = parent;
+            this.move = move;
+            this.g = g;
+        }
+    }
+
+    private final class Worker implements Runnable {
+        final int id;
+        final Queue<Message> inbox = new ConcurrentLinkedQueue<>();
+        // owned nodes; parent links are refs into any worker's arena
+        final NodeArena nodes = new NodeArena();
+        final NodeArena.Heap open = new NodeArena.Heap(this.nodes);
+        // smallest g seen for each owned state
+        final StateTable best = new StateTable();
+        final SearchStats stats = new SearchStats();
+        // scratch cubes for receiving and expanding
+        private final RubiksCube cube = new RubiksCube();
+        private final RubiksCube child = new RubiksCube();
+        Thread thread;
+        volatile boolean parked;
+
+        Worker(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            ParallelAStar search = ParallelAStar.this;
+            int idle = 0;
+            while (!search.done.get()) {
+                receive();
+                int current = this.open.poll();
+                if (current < 0) {
+                    if (search.outstanding.get() == 0) {
+                        search.finish(null);
+                    } else if (++idle < IDLE_SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        park();
+                    }
+                    continue;
+                }
+                idle = 0;
+                // a shorter path to this state arrived after it was queued
+                if (this.best.get(this.nodes.key(current)) < this.nodes.g(current)) {
+                    this.stats.duplicates++;
+                    search.outstanding.decrementAndGet();
+                    continue;
+                }
+                expand(current);
+                search.outstanding.decrementAndGet();
+            }
+        }
+
+        /**
+         * Parks until a sender or finish unparks this worker. parked is set
+         * before the inbox is checked again and send checks it after posting,
+         * so a message cannot slip in unnoticed; the timeout is only a guard.
+         */
+        private void park() {
+            this.parked = true;
+            if (this.inbox.isEmpty() && !ParallelAStar.this.done.get()) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            this.parked = false;
+        }
+
+        /**
+         * Moves the inbox into the open list, dropping states already reached
+         * by a path at least as short
+         */
+        private void receive() {
+            Message message;
+            while ((message = this.inbox.poll()) != null) {
+                int seen = this.best.get(message.key);
+                if (seen >= 0 && seen <= message.g) {
+                    this.stats.duplicates++;
+                    ParallelAStar.this.outstanding.decrementAndGet();
+                    continue;
+                }
+                this.best.put(message.key, message.g);
+                this.cube.unpack(message.cube, 0, message.key);
+                this.open.offer(this.nodes.add(this.cube, message.parent, message.move, message.g,
+                        this.stats.heuristic(this.cube)));
+            }
+            this.stats.sizes(this.open.size(), this.best.size());
+        }
+
+        private void expand(int current) {
+            ParallelAStar search = ParallelAStar.this;
+            long steps = search.expansions.incrementAndGet();
+            if (steps > search.stepLimit) {
+                search.finish(new Solver.Result(null, steps, "Steps limit reached"));
+                return;
+            }
+            this.stats.expanded++;
+            this.nodes.cube(current, this.cube);
+            String pdbMoves = this.stats.patternDatabaseDepth(this.cube) >= 0
+                    ? this.stats.reconstruct(this.cube) : null;
+            if (pdbMoves != null || this.cube.isSolved()) {
+                String suffix = pdbMoves != null && !pdbMoves.isEmpty() ? "|" + pdbMoves : "";
+                search.finish(new Solver.Result(suffix, steps, null), search.ref(this, current));
+                return;
+            }
+            int parent = search.ref(this, current);
+            int g = this.nodes.g(current) + 1;
+            int successors = MoveAutomaton.successors(this.nodes.move(current));
+            for (int move = 0; move < RubiksCube.MOVE_COUNT; move++) {
+                if (!MoveAutomaton.allowed(successors, move)) {
+                    continue;
+                }
+                this.child.copyFrom(this.cube);
+                this.stats.applyMove(this.child, move);
+                this.stats.generated++;
+                search.send(new Message(this.child, parent, move, g));
+            }
+        }
+    }
+}
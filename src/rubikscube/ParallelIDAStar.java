@@ -0,0 +1,264 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IDA* on a work-stealing pool. For every bound, the canonical move
+ * sequences of splitDepth moves become independent tasks. Each task runs the
+ * same bounded depth-first search as IDAStar on its own cube, and all tasks
+ * stop as soon as one of them reaches the goal.
+ */
+public class ParallelIDAStar {
+    static final int DEFAULT_SPLIT_DEPTH = 2;
+
+    private static final int FOUND = -1;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final int maxDepth;
+    private final int splitDepth;
+    private final ForkJoinPool pool;
+    // counters of the whole search; each task counts into its own and they
+    // are added up on the calling thread after every iteration
+    private final SearchStats stats;
+
+    private long splitNodes;
+    private final AtomicBoolean found = new AtomicBoolean();
+    private final AtomicReference<String> solution = new AtomicReference<>();
+    // nodes expanded by each worker thread, over all iterations
+    private final Map<String, LongAdder> threadNodes = new ConcurrentHashMap<>();
+
+    public ParallelIDAStar() {
+        this(IDAStar.DEFAULT_MAX_DEPTH, DEFAULT_SPLIT_DEPTH, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param splitDepth length of the move prefixes handed out as tasks
+     */
+    public ParallelIDAStar(int maxDepth, int splitDepth, ForkJoinPool pool) {
+        this(maxDepth, splitDepth, pool, new SearchStats());
+    }
+
+    ParallelIDAStar(int maxDepth, int splitDepth, ForkJoinPool pool, SearchStats stats) {
+        this.maxDepth = maxDepth;
+        this.splitDepth = splitDepth;
+        this.pool = pool;
+        this.stats = stats;
+    }
+
+    Solver.Result solve(RubiksCube start) {
+        this.found.set(false);
+        this.solution.set(null);
+        this.threadNodes.clear();
+        long totalNodes = 0;
+        int bound = this.stats.heuristic(start);
+        while (bound <= this.maxDepth) {
+            long iterationStart = System.nanoTime();
+            List<SubtreeTask> tasks = new ArrayList<>();
+            int[] prefix = new int[this.splitDepth];
+            this.splitNodes = 0;
+            int next = split(start.deepClone(), 0, bound, -1, prefix, tasks);
+            long nodes = this.splitNodes;
+            if (next != FOUND && !tasks.isEmpty()) {
+                this.pool.invoke(new RootTask(tasks));
+                for (SubtreeTask task : tasks) {
+                    nodes += task.nodes;
+                    this.stats.add(task.stats);
+                    next = Math.min(next, task.getRawResult());
+                }
+                if (this.found.get()) {
+                    next = FOUND;
+                }
+            }
+            long elapsed = System.nanoTime() - iterationStart;
+            totalNodes += nodes;
+            System.out.printf("Parallel IDA* bound %d: %d tasks, %d nodes in %d ms (%.0f nodes/s)%n", bound,
+                    tasks.size(), nodes, elapsed / 1_000_000, nodes * 1e9 / Math.max(1, elapsed));
+            if (next == FOUND) {
+                return new Solver.Result(this.solution.get(), totalNodes, null);
+            }
+            if (next == INFINITY) {
+                break;
+            }
+            bound = next;
+        }
+        return new Solver.Result(null, totalNodes, "Depth limit reached");
+    }
+
+    /**
+     * Per-thread node counts of the last solve, to check load balance
+     */
+    String threadReport() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(this.threadNodes).entrySet()) {
+            sb.append(String.format("%n  %s: %d nodes", entry.getKey(), entry.getValue().sum()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Walks the first splitDepth plies on the calling thread, collecting one
+     * task per surviving prefix
+     *
+     * @return FOUND if the goal lies above the split, otherwise the smallest
+     *         f above bound seen while splitting
+     */
+    private int split(RubiksCube cube, int g, int bound, int lastMove, int[] prefix, List<SubtreeTask> tasks) {
+        this.splitNodes++;
+        int f = g + this.stats.heuristic(cube);
+        if (f > bound) {
+            return f;
+        }
+        this.stats.expanded++;
+        int pdbDepth = this.stats.patternDatabaseDepth(cube);
+        if (pdbDepth >= 0 && g + pdbDepth > bound) {
+            return g + pdbDepth;
+        }
+        if (reachedGoal(cube, prefix, g, pdbDepth, this.stats)) {
+            return FOUND;
+        }
+        if (g == this.splitDepth || g == this.maxDepth) {
+            tasks.add(new SubtreeTask(cube.deepClone(), prefix.clone(), g, bound, lastMove));
+            return INFINITY;
+        }
+        int min = INFINITY;
+        int successors = MoveAutomaton.successors(lastMove);
+        for (int move = 0; move < RubiksCube.MOVE_COUNT; move++) {
+            if (!MoveAutomaton.allowed(successors, move)) {
+                continue;
+            }
+            this.stats.applyMove(cube, move);
+            this.stats.generated++;
+            prefix[g] = move;
+            int t = split(cube, g + 1, bound, move, prefix, tasks);
+            this.stats.applyMove(cube, RubiksCube.inverseOf(move));
+            if (t == FOUND) {
+                return FOUND;
+            }
+            min = Math.min(min, t);
+        }
+        return min;
+    }
+
+    /**
+     * Records the solution if cube is in the pattern database goal ball and
+     * no other task got there first. The caller has checked that g plus
+     * pdbDepth, the depth of cube in the ball or -1, is within the bound.
+     */
+    private boolean reachedGoal(RubiksCube cube, int[] path, int g, int pdbDepth, SearchStats stats) {
+        String pdbMoves = pdbDepth >= 0 ? stats.reconstruct(cube) : null;
+        if (pdbMoves == null && !cube.isSolved()) {
+            return false;
+        }
+        if (this.found.compareAndSet(false, true)) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < g; i++) {
+                sb.append("|").append(RubiksCube.MOVE_NAMES[path[i]]);
+            }
+            if (pdbMoves != null && !pdbMoves.isEmpty()) {
+                sb.append("|").append(pdbMoves);
+            }
+            this.solution.set(sb.toString());
+        }
+        return true;
+    }
+
+    private static final class RootTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final List<SubtreeTask> tasks;
+
+        RootTask(List<SubtreeTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected Integer compute() {
+            ForkJoinTask.invokeAll(this.tasks);
+            return 0;
+        }
+    }
+
+    /**
+     * Bounded depth-first search below one prefix, on a private cube
+     */
+    private final class SubtreeTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final RubiksCube cube;
+        private final int[] path;
+        private final int start;
+        private final int bound;
+        private final int lastMove;
+        private final SearchStats stats = new SearchStats();
+        private long nodes;
+
+        SubtreeTask(RubiksCube cube, int[] prefix, int start, int bound, int lastMove) {
+            this.cube = cube;
+            this.path = new int[ParallelIDAStar.this.maxDepth + 1];
+            System.arraycopy(prefix, 0, this.path, 0, start);
+            this.start = start;
+            this.bound = bound;
+            this.lastMove = lastMove;
+        }
+
+        @Override
+        protected Integer compute() {
+            int result = search(this.start, this.lastMove);
+            ParallelIDAStar.this.threadNodes
+                    .computeIfAbsent(Thread.currentThread().getName(), name -> new LongAdder()).add(this.nodes);
+            return result;
+        }
+
+        private int search(int g, int lastMove) {
+            if (ParallelIDAStar.this.found.get()) {
+                return FOUND;
+            }
+            // the prefix node itself was counted while splitting
+            if (g > this.start) {
+                this.nodes++;
+            }
+            int f = g + this.stats.heuristic(this.cube);
+            if (f > this.bound) {
+                return f;
+            }
+            if (g > this.start) {
+                this.stats.expanded++;
+                int pdbDepth = this.stats.patternDatabaseDepth(this.cube);
+                if (pdbDepth >= 0 && g + pdbDepth > this.bound) {
+                    return g + pdbDepth;
+                }
+                if (reachedGoal(this.cube, this.path, g, pdbDepth, this.stats)) {
+                    return FOUND;
+                }
+            }
+            if (g == ParallelIDAStar.this.maxDepth) {
+                return INFINITY;
+            }
+            int min = INFINITY;
+            int successors = MoveAutomaton.successors(lastMove);
+            for (int move = 0; move < RubiksCube.MOVE_COUNT; move++) {
+                if (!MoveAutomaton.allowed(successors, move)) {
+                    continue;
+                }
+                this.stats.applyMove(this.cube, move);
+                this.stats.generated++;
+                this.path[g] = move;
+                int t = search(g + 1, move);
+                this.stats.applyMove(this.cube, RubiksCube.inverseOf(move));
+                if (t == FOUND) {
+                    return FOUND;
+                }
+                min = Math.min(min, t);
+            }
+            return min;
+        }
+    }
+}
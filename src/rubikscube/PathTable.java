@@ -0,0 +1,274 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Map from a cube state to a depth and a path of move codes, filled in
+ * breadth-first order for the pattern database. Entries are numbered in
+ * insertion order; Zobrist keys sit in a dense long[], the packed states
+ * (RubiksCube.pack) in another, and paths in one shared byte[] pool of move
+ * codes. A probe compares the key and then the packed state, so states whose
+ * keys collide stay separate entries and a lookup never answers for another
+ * state. Because depths never decrease, the entries of one depth
+ * form a run whose paths all have that length, so neither the depth nor the
+ * pool offset of an entry is stored. The only hashed array is an int[] of
+ * entry numbers, probed linearly. The pool can be dropped once the table is
+ * complete, leaving only keys and depths.
+ */
+class PathTable {
+    private static final float MAX_LOAD = 0.75f;
+
+    // entry number + 1 per slot, 0 when empty
+    private int[] slots;
+    private int mask;
+
+    private long[] keys;
+    // PACKED_LONGS words per entry
+    private long[] states;
+    // null once the paths are dropped
+    private byte[] pool;
+    private int size;
+    private int poolSize;
+
+    // levelStart[d] is the first entry of depth d, levelStart[maxDepth + 1] == size
+    private int[] levelStart = { 0, 0 };
+    private int maxDepth;
+
+    PathTable() {
+        this(1 << 12);
+    }
+
+    private PathTable(PathTable other) {
+        this.slots = other.slots.clone();
+        this.mask = other.mask;
+        this.keys = Arrays.copyOf(other.keys, other.size);
+        this.states = Arrays.copyOf(other.states, other.size * RubiksCube.PACKED_LONGS);
+        this.pool = other.pool == null ? null : Arrays.copyOf(other.pool, other.poolSize);
+        this.size = other.size;
+        this.poolSize = other.poolSize;
+        this.levelStart = other.levelStart.clone();
+        this.maxDepth = other.maxDepth;
+    }
+
+    PathTable(int expectedSize) {
+        allocateSlots(expectedSize);
+        this.keys = new long[Math.max(1, expectedSize)];
+        this.states = new long[Math.max(1, expectedSize) * RubiksCube.PACKED_LONGS];
+        this.pool = new byte[Math.max(1, expectedSize * 4)];
+    }
+
+    private void allocateSlots(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // Fibonacci hashing, as in StateTable
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - Integer.bitCount(mask)));
+    }
+
+    /**
+     * @return the entry number of state, or -1 if absent
+     */
+    int find(RubiksCube state) {
+        long key = state.stateKey();
+        int i = slot(key, this.mask);
+        while (this.slots[i] != 0) {
+            int entry = this.slots[i] - 1;
+            if (this.keys[entry] == key && sameState(entry, state)) {
+                return entry;
+            }
+            i = (i + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    private boolean sameState(int entry, RubiksCube state) {
+        int offset = entry * RubiksCube.PACKED_LONGS;
+        for (int word = 0; word < RubiksCube.PACKED_LONGS; word++) {
+            if (this.states[offset + word] != state.packedWord(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds state with the first depth codes of path as its path, unless it
+     * is already present. Depths must be added in non-decreasing order.
+     *
+     * @return true if state was added
+     */
+    boolean add(RubiksCube state, byte[] path, int depth) {
+        if (depth < this.maxDepth) {
+            throw new IllegalArgumentException("depth " + depth + " added after depth " + this.maxDepth);
+        }
+        long key = state.stateKey();
+        int i = slot(key, this.mask);
+        while (this.slots[i] != 0) {
+            int entry = this.slots[i] - 1;
+            if (this.keys[entry] == key && sameState(entry, state)) {
+                return false;
+            }
+            i = (i + 1) & this.mask;
+        }
+        if (this.size == 0) {
+            // levels below the first depth are empty runs at entry 0
+            this.maxDepth = depth;
+            this.levelStart = new int[depth + 2];
+        }
+        while (this.maxDepth < depth) {
+            this.maxDepth++;
+            this.levelStart = Arrays.copyOf(this.levelStart, this.maxDepth + 2);
+            this.levelStart[this.maxDepth] = this.size;
+        }
+        if (this.size == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            this.states = Arrays.copyOf(this.states, this.size * 2 * RubiksCube.PACKED_LONGS);
+        }
+        if (this.poolSize + depth > this.pool.length) {
+            this.pool = Arrays.copyOf(this.pool, Math.max(this.pool.length * 2, this.poolSize + depth));
+        }
+        this.keys[this.size] = key;
+        state.pack(this.states, this.size * RubiksCube.PACKED_LONGS);
+        System.arraycopy(path, 0, this.pool, this.poolSize, depth);
+        this.poolSize += depth;
+        this.size++;
+        this.levelStart[this.maxDepth + 1] = this.size;
+        this.slots[i] = this.size;
+        if (this.size > this.slots.length * MAX_LOAD) {
+            rehash(this.slots.length * 2);
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for (int entry = 0; entry < this.size; entry++) {
+            int i = slot(this.keys[entry], this.mask);
+            while (this.slots[i] != 0) {
+                i = (i + 1) & this.mask;
+            }
+            this.slots[i] = entry + 1;
+        }
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int maxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * @return the first entry of depth, size() past the deepest level
+     */
+    int levelStart(int depth) {
+        return depth > this.maxDepth ? this.size : this.levelStart[depth];
+    }
+
+    long key(int entry) {
+        return this.keys[entry];
+    }
+
+    /**
+     * @return word of the packed state of entry
+     */
+    long stateWord(int entry, int word) {
+        return this.states[entry * RubiksCube.PACKED_LONGS + word];
+    }
+
+    int depth(int entry) {
+        int depth = this.maxDepth;
+        while (this.levelStart[depth] > entry) {
+            depth--;
+        }
+        return depth;
+    }
+
+    private int offset(int entry, int depth) {
+        // every level before depth d holds (entries of that level) * d codes
+        int offset = 0;
+        for (int d = 1; d < depth; d++) {
+            offset += (this.levelStart[d + 1] - this.levelStart[d]) * d;
+        }
+        return offset + (entry - this.levelStart[depth]) * depth;
+    }
+
+    boolean hasPaths() {
+        return this.pool != null;
+    }
+
+    /**
+     * Copies the move codes of entry into path
+     *
+     * @return the number of moves copied
+     */
+    int path(int entry, byte[] path) {
+        checkPaths();
+        int depth = depth(entry);
+        System.arraycopy(this.pool, offset(entry, depth), path, 0, depth);
+        return depth;
+    }
+
+    /**
+     * @return the moves of entry as |-separated names, "" for depth 0
+     */
+    String pathString(int entry) {
+        checkPaths();
+        int depth = depth(entry);
+        int offset = offset(entry, depth);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                sb.append("|");
+            }
+            sb.append(RubiksCube.MOVE_NAMES[this.pool[offset + i]]);
+        }
+        return sb.toString();
+    }
+
+    private void checkPaths() {
+        if (this.pool == null) {
+            throw new IllegalStateException("paths were dropped from this table");
+        }
+    }
+
+    /**
+     * @return a trimmed copy that later adds to this table do not affect
+     */
+    PathTable snapshot() {
+        return new PathTable(this);
+    }
+
+    /**
+     * Releases the spare capacity left by growth once the table is complete
+     */
+    void trim() {
+        this.keys = Arrays.copyOf(this.keys, this.size);
+        this.states = Arrays.copyOf(this.states, this.size * RubiksCube.PACKED_LONGS);
+        if (this.pool != null) {
+            this.pool = Arrays.copyOf(this.pool, this.poolSize);
+        }
+    }
+
+    /**
+     * Frees the path pool; depths and lookups keep working
+     */
+    void dropPaths() {
+        this.pool = null;
+        this.poolSize = 0;
+    }
+
+    /**
+     * @return bytes of all arrays per stored state
+     */
+    double bytesPerEntry() {
+        long bytes = 4L * this.slots.length + 8L * this.keys.length + 8L * this.states.length
+                + (this.pool == null ? 0 : this.pool.length);
+        return this.size == 0 ? 0 : (double) bytes / this.size;
+    }
+}
@@ -1,14 +1,14 @@
 package rubikscube;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Queue;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 /**
  * PatternDatabase - 负责生成和查询4层深度的打乱状态数据库
@@ -16,65 +16,312 @@ import java.util.Queue;
  */
 public class PatternDatabase {
 
-    // 存储魔方状态到最小步数的映射
-    private static Map<String, PDBEntry> stateDatabase = null;
+    // 所有预计算表文件所在目录，可用 -Drubikscube.tables=... 修改；
+    // 默认使用类路径下由 TableGenerator 生成的 rubikscube/tables，没有时用 ./tables
+    static final String TABLE_DIR = tableDir();
 
-    // 18种移动（包括90°, 180°, 270°）
-    private static final String[] ALL_MOVES = {
-            "F", "B", "L", "R", "U", "D", // 90度
-            "FF", "BB", "LL", "RR", "UU", "DD", // 180度
-            "FFF", "BBB", "LLL", "RRR", "UUU", "DDD" // 270度
-    };
+    // BFS 深度，可用 -Drubikscube.pdbDepth=... 修改
+    static final int MAX_DEPTH = Integer.getInteger("rubikscube.pdbDepth", 4);
+
+    // 设置 -Drubikscube.pdbPathFree=true 时只保留状态和深度，
+    // 命中时按深度逐步下降重建还原路径
+    static final boolean STORE_PATHS = !Boolean.getBoolean("rubikscube.pdbPathFree");
+
+    // 设置 -Drubikscube.pdbSymmetry=true 时每个对称类（48 种旋转和镜像）只存一个状态，
+    // 以 CubeSymmetry.canonicalKey 为 key：表约小 48 倍，同样内存可以放深两层的表，
+    // 代价是每次查询要算 48 个 key
+    static final boolean SYMMETRY = Boolean.getBoolean("rubikscube.pdbSymmetry");
+
+    // 并行 BFS 排序时每层新状态下标所占的位数（每层最多 2^27 个状态）
+    private static final int INDEX_BITS = 27;
+
+    // 本次运行中生成的表：魔方状态(压缩的贴纸和 Zobrist key)到深度和路径(移动编号)的映射。
+    // 生成时每完成一层就发布一份快照，查询线程总是看到若干完整的层
+    private static volatile PathTable stateDatabase = null;
+    // 从文件映射的表，只有深度；两者最多有一个不为 null
+    private static volatile MappedPatternTable mappedDatabase = null;
+
+    private static final AtomicBoolean warmUpStarted = new AtomicBoolean();
+
+    private static String tableDir() {
+        String dir = System.getProperty("rubikscube.tables");
+        if (dir != null) {
+            return dir;
+        }
+        URL resource = PatternDatabase.class.getResource("tables");
+        if (resource != null && "file".equals(resource.getProtocol())) {
+            try {
+                return new File(resource.toURI()).getPath();
+            } catch (URISyntaxException e) {
+                // 无法转换成路径时退回默认目录
+            }
+        }
+        return "tables";
+    }
 
     /**
-     * 初始化Pattern Database（4层深度）
+     * 表文件，文件名带深度，对称约简的表另加 s，不同的表互不覆盖
      */
-    public static void initialize() {
-        if (stateDatabase != null) {
+    static File tableFile() {
+        return new File(TABLE_DIR, "pdb" + MAX_DEPTH + (SYMMETRY ? "s" : "") + ".bin");
+    }
+
+    // 对称约简时存放对称类代表的缓冲魔方，每个线程一个
+    private static final ThreadLocal<RubiksCube> CANONICAL = ThreadLocal.withInitial(RubiksCube::new);
+
+    /**
+     * 表中存放的状态：对称约简时是对称类的代表（key 最小的像，key 即
+     * canonicalKey），否则是 cube 本身。对称约简时返回本线程的缓冲魔方，
+     * 下一次调用会覆盖它
+     */
+    private static RubiksCube storedState(RubiksCube cube) {
+        if (!SYMMETRY) {
+            return cube;
+        }
+        RubiksCube image = CANONICAL.get();
+        CubeSymmetry.canonicalImage(cube, image);
+        return image;
+    }
+
+    /**
+     * 在后台线程中初始化，立即返回。查询在初始化期间可以照常调用，
+     * 只会用到已经发布的层；守护线程不会阻止 JVM 退出
+     */
+    public static void initializeAsync() {
+        if (warmUpStarted.compareAndSet(false, true)) {
+            Thread thread = new Thread(PatternDatabase::initialize, "pattern-database-warm-up");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 初始化Pattern Database（默认4层深度）：
+     * 表文件存在时直接映射，否则生成并保存，下次运行不再重新生成。
+     * 后台初始化进行中时，等待它完成
+     */
+    public static synchronized void initialize() {
+        if (mappedDatabase != null || (stateDatabase != null && stateDatabase.maxDepth() == MAX_DEPTH)) {
             return;
         }
 
-        System.out.println("Initializing Pattern Database (4 layers)...");
+        // JFR 事件覆盖映射或生成的整个过程
+        SolverEvents.PatternDatabaseInit event = new SolverEvents.PatternDatabaseInit();
+        event.depth = MAX_DEPTH;
+        event.begin();
+        File file = tableFile();
+        try {
+            MappedPatternTable mapped = MappedPatternTable.open(file, MAX_DEPTH);
+            if (mapped != null) {
+                mappedDatabase = mapped;
+                System.out.println("Pattern Database mapped from " + file + ": " + mapped.size() + " states");
+                event.mapped = true;
+                event.states = mapped.size();
+                event.commit();
+                return;
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read " + file + ", regenerating: " + e.getMessage());
+        }
+
+        PathTable table = generate();
+        stateDatabase = table;
+        event.states = table.size();
+        event.commit();
+        if (Thread.currentThread().isDaemon()) {
+            // 后台预热线程是守护线程，JVM 退出时会被直接杀掉，留下写了一半的 .tmp；
+            // 保存交给非守护线程，JVM 等它写完并改名后才退出
+            new Thread(() -> writeTable(file, table), "pattern-database-save").start();
+        } else {
+            writeTable(file, table);
+        }
+    }
+
+    private static void writeTable(File file, PathTable table) {
+        try {
+            MappedPatternTable.write(file, table);
+        } catch (IOException e) {
+            System.out.println("Could not save " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按层 BFS 生成 MAX_DEPTH 层的表
+     */
+    private static PathTable generate() {
+        System.out.println("Initializing Pattern Database (" + MAX_DEPTH + " layers"
+                + (SYMMETRY ? ", one state per symmetry class" : "") + ")...");
         long start = System.currentTimeMillis();
 
-        stateDatabase = new HashMap<>();
-        RubiksCube solved = new RubiksCube();
-        String solvedState = solved.toString();
+        PathTable table = new PathTable();
+        byte[] path = new byte[MAX_DEPTH + 1];
+        table.add(storedState(new RubiksCube()), path, 0);
+        RubiksCube state = new RubiksCube();
 
-        Queue<PDBState> queue = new LinkedList<>();
-        queue.add(new PDBState(solved, 0, ""));
-        stateDatabase.put(solvedState, new PDBEntry(0, ""));
+        // 按层同步展开：第 depth 层的条目在表中是连续的一段，由路径重放得到魔方。
+        // 父状态在 fork-join 池中并行展开，新状态写入分段加锁的 FrontierTable，
+        // 每个状态保留最小的 (父编号 * 18 + 移动)，即串行 BFS 会先找到的那一个；
+        // 按这个编号排序后再插入，结果与串行构建完全相同
+        System.out.println("Pattern Database BFS on " + ForkJoinPool.getCommonPoolParallelism() + " threads");
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            long levelStartTime = System.nanoTime();
+            int parentDepth = depth;
+            FrontierTable frontier = new FrontierTable();
+            IntStream.range(table.levelStart(depth), table.levelStart(depth + 1)).parallel()
+                    .forEach(entry -> expand(table, entry, parentDepth, frontier));
 
-        int maxDepth = 4; // 4层深度
+            int count = frontier.size();
+            if (count > 1 << INDEX_BITS) {
+                throw new IllegalStateException("Pattern Database level " + (depth + 1) + " is too large: " + count);
+            }
+            long[] keys = new long[count];
+            long[] codes = new long[count];
+            frontier.drain(keys, codes);
+            // 高位放编号、低 INDEX_BITS 位放在 keys 中的下标，一次排序即可
+            long[] order = new long[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = codes[i] << INDEX_BITS | i;
+            }
+            Arrays.parallelSort(order);
+            for (long packed : order) {
+                long code = packed >>> INDEX_BITS;
+                table.path((int) (code / RubiksCube.MOVE_COUNT), path);
+                path[depth] = (byte) (code % RubiksCube.MOVE_COUNT);
+                // 表中要存完整的状态，由路径重放得到；它的 key 就是 keys 中对应的那个
+                state.copyFrom(RubiksCube.solvedCube);
+                for (int i = 0; i <= depth; i++) {
+                    state.applyMove(path[i]);
+                }
+                table.add(storedState(state), path, depth + 1);
+            }
 
-        while (!queue.isEmpty()) {
-            PDBState curr = queue.poll();
-            if (curr.depth >= maxDepth) {
-                continue;
+            double seconds = (System.nanoTime() - levelStartTime) / 1e9;
+            System.out.printf("Pattern Database depth %d: %d states in %.3fs (%.0f states/s)%n", depth + 1,
+                    count, seconds, count / Math.max(seconds, 1e-9));
+            if (depth + 1 < MAX_DEPTH) {
+                // 发布这一层的快照；最后一层由调用者直接发布整张表
+                stateDatabase = table.snapshot();
             }
+        }
+        table.trim();
+        if (!STORE_PATHS) {
+            // BFS 按层重放需要路径，建完后再释放
+            table.dropPaths();
+        }
 
-            // 尝试所有18种移动
-            for (String move : ALL_MOVES) {
-                // 剪枝：避免无意义的重复移动
-                if (shouldPruneMove(curr.path, move)) {
-                    continue;
-                }
+        System.out.println("Pattern Database initialized: " + table.size() + " states in " +
+                (System.currentTimeMillis() - start) / 1000.0 + "s" +
+                String.format(" (%.1f bytes/state)", table.bytesPerEntry()));
+        return table;
+    }
 
-                RubiksCube next = curr.cube.deepClone();
-                next.applyMoves(move);
-                String nextState = next.toString();
-                String newPath = curr.path.isEmpty() ? move : curr.path + "|" + move;
+    /**
+     * @return 已经可以查询的完整层数，尚未开始时为 -1
+     */
+    public static int availableDepth() {
+        if (mappedDatabase != null) {
+            return MAX_DEPTH;
+        }
+        PathTable table = stateDatabase;
+        return table == null ? -1 : table.maxDepth();
+    }
 
-                // 如果这个状态还没有被访问过，添加到数据库
-                if (!stateDatabase.containsKey(nextState)) {
-                    stateDatabase.put(nextState, new PDBEntry(curr.depth + 1, newPath));
-                    queue.add(new PDBState(next, curr.depth + 1, newPath));
-                }
+    /**
+     * 丢弃已加载的表，下一次 initialize() 重新映射或生成；供基准测试重复测量初始化
+     */
+    static synchronized void reset() {
+        stateDatabase = null;
+        mappedDatabase = null;
+    }
+
+    /**
+     * @return 表中状态 state 的深度，不在数据库中返回 -1
+     */
+    private static int depthOf(RubiksCube state) {
+        MappedPatternTable mapped = mappedDatabase;
+        if (mapped != null) {
+            return mapped.get(state);
+        }
+        PathTable table = stateDatabase;
+        if (table != null) {
+            int entry = table.find(state);
+            return entry >= 0 ? table.depth(entry) : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return 本次运行中生成且保留了路径的表中 cube 的打乱路径，否则为 null；
+     *         映射的文件不含路径
+     */
+    private static String storedPath(RubiksCube cube, RubiksCube state) {
+        PathTable table = stateDatabase;
+        if (mappedDatabase != null || table == null || !table.hasPaths()) {
+            return null;
+        }
+        int entry = table.find(state);
+        if (entry < 0) {
+            return null;
+        }
+        if (!SYMMETRY) {
+            return table.pathString(entry);
+        }
+        // 存的路径到达同一对称类中的另一个状态：找到把它变成 cube 的对称，
+        // 路径中每步换成共轭的移动即可
+        byte[] path = new byte[table.depth(entry)];
+        table.path(entry, path);
+        int symmetry = CubeSymmetry.find(replay(path, path.length), cube);
+        if (symmetry < 0) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        RubiksCube check = new RubiksCube();
+        for (byte move : path) {
+            if (sb.length() > 0) {
+                sb.append("|");
             }
+            int conjugate = CubeSymmetry.conjugate(symmetry, move);
+            check.applyMove(conjugate);
+            sb.append(RubiksCube.MOVE_NAMES[conjugate]);
         }
+        // find 只比较 key，重放一遍确认共轭后的路径确实到达 cube
+        return Arrays.equals(check.facelets, cube.facelets) ? sb.toString() : null;
+    }
+
+    /**
+     * 展开一个父状态：所有未剪枝、且不在前几层中的子状态都提交到 frontier
+     */
+    private static void expand(PathTable table, int entry, int depth, FrontierTable frontier) {
+        byte[] path = new byte[depth];
+        table.path(entry, path);
+        RubiksCube curr = replay(path, depth);
+        // 剪枝：只展开规范移动序列（见 MoveAutomaton），每层的状态集合不变。
+        // 对称约简时路径只到达类中的某个状态，共轭后的规范序列不一定以它结尾，
+        // 所以展开全部 18 种移动
+        int successors = MoveAutomaton.successors(SYMMETRY || depth == 0 ? -1 : path[depth - 1]);
+
+        // 尝试所有18种移动
+        for (int move = 0; move < RubiksCube.MOVE_COUNT; move++) {
+            if (!MoveAutomaton.allowed(successors, move)) {
+                continue;
+            }
+
+            curr.applyMove(move);
+            RubiksCube state = storedState(curr);
+            // 如果这个状态还没有被访问过，作为候选
+            if (table.find(state) < 0) {
+                frontier.offer(state.stateKey(), (long) entry * RubiksCube.MOVE_COUNT + move);
+            }
+            curr.applyMove(RubiksCube.inverseOf(move));
+        }
+    }
 
-        System.out.println("Pattern Database initialized: " + stateDatabase.size() + " states in " +
-                (System.currentTimeMillis() - start) / 1000.0 + "s");
+    private static RubiksCube replay(byte[] path, int length) {
+        RubiksCube cube = new RubiksCube();
+        for (int i = 0; i < length; i++) {
+            cube.applyMove(path[i]);
+        }
+        return cube;
     }
 
     /**
@@ -83,11 +330,13 @@ public class PatternDatabase {
      * @return 如果找到，返回PDBEntry（包含步数和路径），否则返回null
      */
     public static PDBEntry lookup(RubiksCube cube) {
-        if (stateDatabase == null) {
+        RubiksCube state = storedState(cube);
+        int depth = depthOf(state);
+        if (depth < 0) {
             return null;
         }
-        String state = cube.toString();
-        return stateDatabase.get(state);
+        String path = storedPath(cube, state);
+        return new PDBEntry(depth, path != null ? path : scrambleMoves(descend(cube)));
     }
 
     /**
@@ -96,8 +345,7 @@ public class PatternDatabase {
      * @return 如果找到返回步数，否则返回-1
      */
     public static int getDepth(RubiksCube cube) {
-        PDBEntry entry = lookup(cube);
-        return entry != null ? entry.depth : -1;
+        return depthOf(storedState(cube));
     }
 
     /**
@@ -111,82 +359,100 @@ public class PatternDatabase {
     }
 
     /**
-     * 检查移动是否应该被剪枝
+     * 数据库中的路径是从还原状态打乱到该状态的移动，
+     * 倒序并取每步的逆，得到从该状态还原的移动（同样以|分隔）
      */
-    private static boolean shouldPruneMove(String previousPath, String nextMove) {
-        if (previousPath == null || previousPath.isEmpty()) {
-            return false;
+    public static String solvingMoves(String path) {
+        if (path == null || path.isEmpty()) {
+            return "";
         }
-
-        // 从路径中提取最后一个移动
-        String lastMove = previousPath;
-        int lastSeparator = previousPath.lastIndexOf('|');
-        if (lastSeparator >= 0) {
-            lastMove = previousPath.substring(lastSeparator + 1);
+        String[] moves = path.split("\\|");
+        StringBuilder sb = new StringBuilder();
+        for (int i = moves.length - 1; i >= 0; i--) {
+            if (sb.length() > 0) {
+                sb.append("|");
+            }
+            sb.append(RubiksCube.MOVE_NAMES[RubiksCube.inverseOf(RubiksCube.moveCode(moves[i]))]);
         }
+        return sb.toString();
+    }
 
-        char nextFace = nextMove.charAt(0);
-        char lastFace = lastMove.charAt(0);
-
-        // 剪枝1: 避免连续4次相同面的操作 (如 F + FFF)
-        int consecutiveCount = lastMove.length(); // F=1, FF=2, FFF=3
-        if (lastFace == nextFace) {
-            int nextMoveCount = nextMove.length();
-            if (consecutiveCount + nextMoveCount >= 4) {
-                return true;
-            }
+    /**
+     * 从数据库中的状态还原的移动（以|分隔），不在数据库中返回null。
+     * 有路径时直接倒转路径，否则按深度逐步下降
+     */
+    public static String solvingMoves(RubiksCube cube) {
+        RubiksCube state = storedState(cube);
+        if (depthOf(state) < 0) {
+            return null;
         }
+        String path = storedPath(cube, state);
+        return path != null ? solvingMoves(path) : descend(cube);
+    }
 
-        // 剪枝2: 避免对面来回操作 (如 F B F)
-        if (isOppositeFace(lastFace, nextFace)) {
-            // 检查倒数第二个移动
-            int secondLastSeparator = previousPath.lastIndexOf('|', lastSeparator - 1);
-            if (secondLastSeparator >= 0) {
-                String secondLastMove = previousPath.substring(secondLastSeparator + 1, lastSeparator);
-                char secondLastFace = secondLastMove.charAt(0);
-                if (secondLastFace == nextFace) {
-                    return true; // 发现 A-B-A 模式
+    /**
+     * 贪心下降：每步走到任一深度少1的邻居，最多 18 × 深度 次查表
+     */
+    private static String descend(RubiksCube cube) {
+        RubiksCube curr = cube.deepClone();
+        int depth = getDepth(curr);
+        StringBuilder sb = new StringBuilder();
+        while (depth > 0) {
+            int move = 0;
+            while (move < RubiksCube.MOVE_COUNT) {
+                curr.applyMove(move);
+                if (getDepth(curr) == depth - 1) {
+                    break;
                 }
+                curr.applyMove(RubiksCube.inverseOf(move));
+                move++;
+            }
+            if (move == RubiksCube.MOVE_COUNT) {
+                throw new IllegalStateException("Pattern database has no neighbour at depth " + (depth - 1));
             }
+            if (sb.length() > 0) {
+                sb.append("|");
+            }
+            sb.append(RubiksCube.MOVE_NAMES[move]);
+            depth--;
         }
-
-        return false;
+        return sb.toString();
     }
 
-    private static boolean isOppositeFace(char f1, char f2) {
-        return (f1 == 'F' && f2 == 'B') || (f1 == 'B' && f2 == 'F') ||
-                (f1 == 'L' && f2 == 'R') || (f1 == 'R' && f2 == 'L') ||
-                (f1 == 'U' && f2 == 'D') || (f1 == 'D' && f2 == 'U');
+    /**
+     * solvingMoves 的逆：还原路径倒序取逆即为打乱路径
+     */
+    private static String scrambleMoves(String solvingMoves) {
+        return solvingMoves(solvingMoves);
     }
 
     /**
-     * 保存数据库到文件
+     * 保存本次生成的数据库到文件（格式见 MappedPatternTable）
      */
     public static void save(String filename) throws IOException {
         if (stateDatabase != null) {
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-                oos.writeObject(stateDatabase);
-            }
+            MappedPatternTable.write(new File(filename), stateDatabase);
             System.out.println("Pattern Database saved to " + filename);
         }
     }
 
     /**
-     * 从文件加载数据库
+     * 映射文件中的数据库，之后的查询直接读映射的内存
      */
-    @SuppressWarnings("unchecked")
-    public static void load(String filename) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            stateDatabase = (Map<String, PDBEntry>) ois.readObject();
-            System.out.println("Pattern Database loaded: " + stateDatabase.size() + " states");
+    public static void load(String filename) throws IOException {
+        MappedPatternTable mapped = MappedPatternTable.open(new File(filename), MAX_DEPTH);
+        if (mapped == null) {
+            throw new FileNotFoundException(filename);
         }
+        mappedDatabase = mapped;
+        stateDatabase = null;
+        System.out.println("Pattern Database loaded: " + mapped.size() + " states");
     }
 
     /**
      * 数据库条目：存储深度和路径
      */
-    public static class PDBEntry implements java.io.Serializable {
-        private static final long serialVersionUID = 1L;
+    public static class PDBEntry {
         public final int depth;
         public final String path;
 
@@ -195,19 +461,4 @@ public class PatternDatabase {
             this.path = path;
         }
     }
-
-    /**
-     * BFS状态节点
-     */
-    private static class PDBState {
-        RubiksCube cube;
-        int depth;
-        String path;
-
-        PDBState(RubiksCube cube, int depth, String path) {
-            this.cube = cube;
-            this.depth = depth;
-            this.path = path;
-        }
-    }
-}
\ No newline at end of file
+}
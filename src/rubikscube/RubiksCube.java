@@ -3,16 +3,42 @@ package rubikscube;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.SplittableRandom;
 
 public class RubiksCube {
-    String[][] cube;
-    Integer valideElementsCount = 0;
+    // packed facelets: one color id per sticker, indexed in net row-major order
+    byte[] facelets;
+    // Zobrist hash of the facelets, updated by every move
+    private long hash;
 
-    final Integer TOTAL_ROWS = 9;
-    final Integer TOTAL_COLUMNS = 12;
-    final Integer TOTAL_ELEMENTS = 54;
+    static final int TOTAL_ROWS = 9;
+    static final int TOTAL_COLUMNS = 12;
+    static final int TOTAL_ELEMENTS = 54;
+    // longs per cube in the packed form written by pack
+    static final int PACKED_LONGS = 3;
+    private static final int FACELETS_PER_LONG = 21;
 
-    private String stateInit = "   OOO\n" +
+    // color ids are indexes into this array
+    static final char[] COLORS = { 'O', 'G', 'W', 'B', 'Y', 'R' };
+
+    // move codes are face * 3 + (quarter turns - 1), faces in FaceType order
+    static final int MOVE_COUNT = 18;
+    static final String[] MOVE_NAMES = {
+            "F", "FF", "FFF", "B", "BB", "BBB", "R", "RR", "RRR",
+            "L", "LL", "LLL", "U", "UU", "UUU", "D", "DD", "DDD"
+    };
+
+    // facelet index of every (row, column) of the net, -1 for blank cells
+    static final int[][] FACELET_INDEX = new int[TOTAL_ROWS][TOTAL_COLUMNS];
+    static final int[] FACELET_ROW = new int[TOTAL_ELEMENTS];
+    static final int[] FACELET_COL = new int[TOTAL_ELEMENTS];
+
+    // MOVE_TABLE[m][i]: facelet that lands on i after move m
+    static final int[][] MOVE_TABLE = new int[MOVE_COUNT][];
+    // the same permutations split into cycles so moves can be applied in place
+    static final int[][][] MOVE_CYCLES = new int[MOVE_COUNT][][];
+
+    private static final String stateInit = "   OOO\n" +
             "   OOO\n" +
             "   OOO\n" +
             "GGGWWWBBBYYY\n" +
@@ -22,6 +48,40 @@ public class RubiksCube {
             "   RRR\n" +
             "   RRR\n";
 
+    private static final byte[] SOLVED_FACELETS = new byte[TOTAL_ELEMENTS];
+
+    // ZOBRIST[i * 6 + color]: random key of sticker i showing color, fixed seed
+    // so keys are stable across runs
+    private static final long[] ZOBRIST = new long[TOTAL_ELEMENTS * 6];
+    private static final long SOLVED_HASH;
+
+    static {
+        int index = 0;
+        for (int i = 0; i < TOTAL_ROWS; i++) {
+            for (int j = 0; j < TOTAL_COLUMNS; j++) {
+                boolean onNet = (i >= 3 && i <= 5) || (j >= 3 && j <= 5);
+                if (onNet) {
+                    FACELET_INDEX[i][j] = index;
+                    FACELET_ROW[index] = i;
+                    FACELET_COL[index] = j;
+                    index++;
+                } else {
+                    FACELET_INDEX[i][j] = -1;
+                }
+            }
+        }
+        String[] lines = stateInit.split("\n");
+        for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+            SOLVED_FACELETS[i] = colorId(lines[FACELET_ROW[i]].charAt(FACELET_COL[i]));
+        }
+        buildMoveTables();
+        SplittableRandom random = new SplittableRandom(0x5EED_CAFEL);
+        for (int i = 0; i < ZOBRIST.length; i++) {
+            ZOBRIST[i] = random.nextLong();
+        }
+        SOLVED_HASH = hashOf(SOLVED_FACELETS);
+    }
+
     public static RubiksCube solvedCube = new RubiksCube();
 
     /**
@@ -38,21 +98,21 @@ public class RubiksCube {
      * RRR
      */
     public RubiksCube() {
-        this.cube = new String[9][12];
-        // read file cube_init.txt
-        for (int i = 0; i < TOTAL_ROWS; i++) {
-            String line = this.stateInit.split("\n")[i];
-            for (int j = 0; j < TOTAL_COLUMNS; j++) {
-                // if the character is not exist continue to the next line
-                if (j >= line.length()) {
-                    continue;
-                }
-                cube[i][j] = String.valueOf(line.charAt(j));
-                if (!cube[i][j].trim().isEmpty()) {
-                    valideElementsCount++;
-                }
-            }
-        }
+        this.facelets = SOLVED_FACELETS.clone();
+        this.hash = SOLVED_HASH;
+    }
+
+    private RubiksCube(RubiksCube other) {
+        this.facelets = other.facelets.clone();
+        this.hash = other.hash;
+    }
+
+    /**
+     * Wraps an array of color ids, the array is not copied
+     */
+    RubiksCube(byte[] facelets) {
+        this.facelets = facelets;
+        this.hash = hashOf(facelets);
     }
 
     /**
@@ -63,111 +123,195 @@ public class RubiksCube {
      *                                  in fileName
      */
     public RubiksCube(String fileName) throws IOException, IncorrectFormatException {
-
-        this.cube = new String[9][12];
-        String[] filePaths = {
-                fileName,
-        };
-        BufferedReader reader = null;
-        for (String filePath : filePaths) {
-            try {
-                reader = new BufferedReader(new FileReader(filePath));
-                // throw if file is not in correct format
-                for (int i = 0; i < TOTAL_ROWS; i++) {
-                    String line = reader.readLine();
-                    for (int j = 0; j < TOTAL_COLUMNS; j++) {
-                        if (j >= line.length()) {
-                            continue;
-                        }
-                        cube[i][j] = String.valueOf(line.charAt(j));
-                        if (!cube[i][j].trim().isEmpty()) {
-                            valideElementsCount++;
-                        }
-                    }
-                }
-                reader.close();
-                if (valideElementsCount != TOTAL_ELEMENTS) {
+        this.facelets = new byte[TOTAL_ELEMENTS];
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String[] lines = new String[TOTAL_ROWS];
+            for (int i = 0; i < TOTAL_ROWS; i++) {
+                lines[i] = reader.readLine();
+                if (lines[i] == null) {
                     throw new IncorrectFormatException("Wrong format of the file");
                 }
-                break;
-            } catch (IOException e) {
-                // by pass the error try next path
             }
+            parseNet(lines);
         }
-        if (reader == null) {
-            throw new IOException("Error reading file");
-        }
+        // reject twisted corners, flipped edges and parity errors before searching
+        CubieCube.fromFacelets(this);
     }
 
-    public void resetCube(String cubeString) {
-        // rest the cube with input form toString() output
-        /*
-         * current error :
-         * Exception in thread "main" java.lang.StringIndexOutOfBoundsException: String
-         * index out of range: 6
-         * at java.base/java.lang.StringLatin1.charAt(StringLatin1.java:48)
-         * at java.base/java.lang.String.charAt(String.java:1519)
-         * at rubikscube.RubiksCube.resetCube(RubiksCube.java:109)
-         * at rubikscube.Solver.main(Solver.java:61)
-         */
-        this.cube = new String[9][12];
-        String[] lines = cubeString.split("\n");
+    /**
+     * Fills the facelets from the 9 lines of a net, throws if any sticker is
+     * missing, unknown or if there are stickers outside the net
+     */
+    private void parseNet(String[] lines) throws IncorrectFormatException {
+        int validElementsCount = 0;
         for (int i = 0; i < TOTAL_ROWS; i++) {
             String line = lines[i];
-            for (int j = 0; j < TOTAL_COLUMNS; j++) {
-                if (j >= line.length()) {
+            for (int j = 0; j < TOTAL_COLUMNS && j < line.length(); j++) {
+                char c = line.charAt(j);
+                if (c == ' ') {
                     continue;
                 }
-                this.cube[i][j] = String.valueOf(line.charAt(j));
-                if (!this.cube[i][j].trim().isEmpty()) {
-                    valideElementsCount++;
+                int index = FACELET_INDEX[i][j];
+                byte color = colorId(c);
+                if (index < 0 || color < 0) {
+                    throw new IncorrectFormatException("Wrong format of the file");
                 }
+                this.facelets[index] = color;
+                validElementsCount++;
             }
         }
-        valideElementsCount = 0;
-        for (int i = 0; i < TOTAL_ROWS; i++) {
-            for (int j = 0; j < TOTAL_COLUMNS; j++) {
-                if (this.cube[i][j] != null && !this.cube[i][j].trim().isEmpty()) {
-                    valideElementsCount++;
-                }
+        if (validElementsCount != TOTAL_ELEMENTS) {
+            throw new IncorrectFormatException("Wrong format of the file");
+        }
+        this.hash = hashOf(this.facelets);
+    }
+
+    /**
+     * @return the Zobrist key of sticker i showing color
+     */
+    static long zobrist(int i, int color) {
+        return ZOBRIST[i * 6 + color];
+    }
+
+    /**
+     * Recomputes the Zobrist key after the facelets were written directly
+     */
+    void rehash() {
+        this.hash = hashOf(this.facelets);
+    }
+
+    private static long hashOf(byte[] facelets) {
+        long h = 0;
+        for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+            h ^= ZOBRIST[i * 6 + facelets[i]];
+        }
+        return h;
+    }
+
+    /**
+     * 64-bit Zobrist key of the current state. Equal states always have equal
+     * keys; different states collide with probability about 2^-64 per pair.
+     */
+    public long stateKey() {
+        return this.hash;
+    }
+
+    public void resetCube(String cubeString) {
+        // rest the cube with input form toString() output
+        try {
+            parseNet(cubeString.split("\n"));
+        } catch (IncorrectFormatException e) {
+            throw new IllegalArgumentException("Not a cube string: " + cubeString, e);
+        }
+    }
+
+    static byte colorId(char color) {
+        for (byte i = 0; i < COLORS.length; i++) {
+            if (COLORS[i] == color) {
+                return i;
             }
         }
+        return -1;
     }
 
-    private void applyMoveF() {
-        Face face = new Face(this.cube, FaceType.F);
-        face.rotateFace();
-        face.modifyCube(this.cube);
+    /**
+     * @return the color letter at (row, col) of the net, ' ' for blank cells
+     */
+    char colorAt(int row, int col) {
+        int index = FACELET_INDEX[row][col];
+        return index < 0 ? ' ' : COLORS[this.facelets[index]];
     }
 
-    private void applyMoveL() {
-        Face face = new Face(this.cube, FaceType.L);
-        face.rotateFace();
-        face.modifyCube(this.cube);
+    /**
+     * Replays each quarter turn of Face on a net labelled with facelet indexes,
+     * so the packed tables follow exactly the same move definitions.
+     */
+    private static void buildMoveTables() {
+        FaceType[] faces = FaceType.values();
+        for (int f = 0; f < faces.length; f++) {
+            String[][] net = new String[TOTAL_ROWS][TOTAL_COLUMNS];
+            for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+                net[FACELET_ROW[i]][FACELET_COL[i]] = String.valueOf(i);
+            }
+            for (int turns = 1; turns <= 3; turns++) {
+                Face face = new Face(net, faces[f]);
+                face.rotateFace();
+                face.modifyCube(net);
+                int[] table = new int[TOTAL_ELEMENTS];
+                for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+                    table[i] = Integer.parseInt(net[FACELET_ROW[i]][FACELET_COL[i]]);
+                }
+                int move = f * 3 + turns - 1;
+                MOVE_TABLE[move] = table;
+                MOVE_CYCLES[move] = toCycles(table);
+            }
+        }
     }
 
-    private void applyMoveR() {
-        Face face = new Face(this.cube, FaceType.R);
-        face.rotateFace();
-        face.modifyCube(this.cube);
+    private static int[][] toCycles(int[] table) {
+        boolean[] seen = new boolean[table.length];
+        int[][] cycles = new int[table.length][];
+        int count = 0;
+        for (int start = 0; start < table.length; start++) {
+            if (seen[start] || table[start] == start) {
+                continue;
+            }
+            int length = 0;
+            for (int i = start; !seen[i]; i = table[i]) {
+                seen[i] = true;
+                length++;
+            }
+            int[] cycle = new int[length];
+            for (int i = start, k = 0; k < length; i = table[i], k++) {
+                cycle[k] = i;
+            }
+            cycles[count++] = cycle;
+        }
+        int[][] result = new int[count][];
+        System.arraycopy(cycles, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * @return the move code of a move name such as "F", "FF" or "FFF"
+     */
+    static int moveCode(String move) {
+        for (int i = 0; i < MOVE_COUNT; i++) {
+            if (MOVE_NAMES[i].equals(move)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown move: " + move);
     }
 
-    private void applyMoveU() {
-        Face face = new Face(this.cube, FaceType.U);
-        face.rotateFace();
-        face.modifyCube(this.cube);
+    static int faceOf(int move) {
+        return move / 3;
     }
 
-    private void applyMoveD() {
-        Face face = new Face(this.cube, FaceType.D);
-        face.rotateFace();
-        face.modifyCube(this.cube);
+    static int inverseOf(int move) {
+        return move - move % 3 + 2 - move % 3;
     }
 
-    private void applyMoveB() {
-        Face face = new Face(this.cube, FaceType.B);
-        face.rotateFace();
-        face.modifyCube(this.cube);
+    /**
+     * Applies a single move code in place, without allocating
+     */
+    void applyMove(int move) {
+        byte[] f = this.facelets;
+        long h = this.hash;
+        for (int[] cycle : MOVE_CYCLES[move]) {
+            byte first = f[cycle[0]];
+            int last = cycle.length - 1;
+            for (int k = 0; k < last; k++) {
+                int i = cycle[k];
+                byte next = f[cycle[k + 1]];
+                h ^= ZOBRIST[i * 6 + f[i]] ^ ZOBRIST[i * 6 + next];
+                f[i] = next;
+            }
+            int i = cycle[last];
+            h ^= ZOBRIST[i * 6 + f[i]] ^ ZOBRIST[i * 6 + first];
+            f[i] = first;
+        }
+        this.hash = h;
     }
 
     /**
@@ -178,22 +322,22 @@ public class RubiksCube {
         for (int i = 0; i < moves.length(); i++) {
             switch (moves.charAt(i)) {
                 case 'F':
-                    applyMoveF();
+                    applyMove(0);
                     break;
                 case 'B':
-                    applyMoveB();
-                    break;
-                case 'L':
-                    applyMoveL();
+                    applyMove(3);
                     break;
                 case 'R':
-                    applyMoveR();
+                    applyMove(6);
+                    break;
+                case 'L':
+                    applyMove(9);
                     break;
                 case 'U':
-                    applyMoveU();
+                    applyMove(12);
                     break;
                 case 'D':
-                    applyMoveD();
+                    applyMove(15);
                     break;
             }
         }
@@ -213,36 +357,88 @@ public class RubiksCube {
      * RRR
      */
     public boolean isSolved() {
-        if (this.toString().equals(stateInit)) {
-            return true;
+        if (this.hash != SOLVED_HASH) {
+            return false;
         }
-        return false;
-
+        byte[] f = this.facelets;
+        for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+            if (f[i] != SOLVED_FACELETS[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public String toString() {
-        String result = "";
-        for (int i = 0; i < this.cube.length; i++) {
-            for (int j = 0; j < this.cube[i].length; j++) {
-                if (this.cube[i][j] == null) {
-                    continue;
-                }
-                result += this.cube[i][j];
+        StringBuilder result = new StringBuilder(stateInit.length());
+        int row = 0;
+        for (int i = 0; i < TOTAL_ELEMENTS; i++) {
+            int currentRow = FACELET_ROW[i];
+            if (currentRow != row) {
+                result.append('\n');
+                row = currentRow;
             }
-            result += "\n";
+            if (FACELET_COL[i] == 3 && (row < 3 || row > 5)) {
+                result.append("   ");
+            }
+            result.append(COLORS[this.facelets[i]]);
         }
-        return result;
+        return result.append('\n').toString();
     }
 
     public RubiksCube deepClone() {
-        RubiksCube clonedCube = new RubiksCube();
-        for (int i = 0; i < this.cube.length; i++) {
-            for (int j = 0; j < this.cube[i].length; j++) {
-                clonedCube.cube[i][j] = this.cube[i][j];
+        return new RubiksCube(this);
+    }
+
+    /**
+     * Overwrites this cube with the state of other, without allocating
+     */
+    void copyFrom(RubiksCube other) {
+        System.arraycopy(other.facelets, 0, this.facelets, 0, TOTAL_ELEMENTS);
+        this.hash = other.hash;
+    }
+
+    /**
+     * Writes the facelets to dest[offset .. offset + PACKED_LONGS), 3 bits
+     * per color id, 21 facelets per long
+     */
+    void pack(long[] dest, int offset) {
+        for (int word = 0; word < PACKED_LONGS; word++) {
+            dest[offset + word] = packedWord(word);
+        }
+    }
+
+    /**
+     * @return word of the packed form, never 0 for word 0 of a real cube,
+     *         whose first 21 facelets cannot all show color 0
+     */
+    long packedWord(int word) {
+        byte[] f = this.facelets;
+        long bits = 0;
+        int end = Math.min(TOTAL_ELEMENTS, (word + 1) * FACELETS_PER_LONG);
+        for (int i = end - 1; i >= word * FACELETS_PER_LONG; i--) {
+            bits = bits << 3 | f[i];
+        }
+        return bits;
+    }
+
+    /**
+     * Overwrites this cube with a state written by pack
+     *
+     * @param key the stateKey() of the packed state
+     */
+    void unpack(long[] src, int offset, long key) {
+        byte[] f = this.facelets;
+        for (int word = 0; word < PACKED_LONGS; word++) {
+            long bits = src[offset + word];
+            int end = Math.min(TOTAL_ELEMENTS, (word + 1) * FACELETS_PER_LONG);
+            for (int i = word * FACELETS_PER_LONG; i < end; i++) {
+                f[i] = (byte) (bits & 7);
+                bits >>>= 3;
             }
         }
-        return clonedCube;
+        this.hash = key;
     }
 
     /**
@@ -252,7 +448,7 @@ public class RubiksCube {
      */
     public static int order(String moves) {
         RubiksCube tempCube = new RubiksCube();
-        Integer order = 0;
+        int order = 0;
         do {
             tempCube.applyMoves(moves);
             order++;
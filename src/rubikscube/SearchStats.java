@@ -0,0 +1,192 @@
+package rubikscube;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Counters for one solve, reported as one JSON object when the solve ends
+ * rather than as progress lines during the search. Engines that do not track
+ * a counter leave it at 0, and engines that expand no nodes (Thistlethwaite,
+ * two-phase) get no counters in the JSON at all. A* adds the shape of its
+ * visited table and node arena. Not thread-safe: parallel
+ * engines give each worker its own instance and add them up at the end.
+ */
+class SearchStats {
+    // heuristic calls and moves are timed one in 2^SAMPLE_SHIFT and scaled
+    // up, so reading the clock does not slow the search it measures
+    private static final int SAMPLE_SHIFT = 4;
+    private static final int SAMPLE_MASK = (1 << SAMPLE_SHIFT) - 1;
+
+    long expanded;
+    long generated;
+    long duplicates;
+    long pdbHits;
+    long pdbMisses;
+    long heuristicNanos;
+    long moveNanos;
+    long peakOpen;
+    long peakClosed;
+    // A* only: the visited table and node arena when the search ended
+    long arenaNodes;
+    double closedBytesPerState;
+    double closedAverageProbe;
+    int closedMaxProbe;
+
+    // print a progress line every progressInterval expansions, 0 for never
+    final int progressInterval;
+
+    private long heuristicCalls;
+    private long moveCalls;
+    private long startNanos;
+    private long wallNanos;
+    private long startAllocated = -1;
+    private long allocatedBytes = -1;
+
+    SearchStats() {
+        this(0);
+    }
+
+    SearchStats(int progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    void start() {
+        this.startNanos = System.nanoTime();
+        this.startAllocated = allocatedBytes();
+    }
+
+    void finish() {
+        this.wallNanos = System.nanoTime() - this.startNanos;
+        long allocated = allocatedBytes();
+        this.allocatedBytes = allocated < 0 || this.startAllocated < 0 ? -1 : allocated - this.startAllocated;
+    }
+
+    /**
+     * Solver.heuristic, timed by sampling
+     */
+    int heuristic(RubiksCube cube) {
+        if ((this.heuristicCalls++ & SAMPLE_MASK) != 0) {
+            return Solver.heuristic.applyAsInt(cube);
+        }
+        long start = System.nanoTime();
+        int h = Solver.heuristic.applyAsInt(cube);
+        this.heuristicNanos += (System.nanoTime() - start) << SAMPLE_SHIFT;
+        return h;
+    }
+
+    /**
+     * @return the depth of cube in the pattern database goal ball, -1 if it
+     *         is outside, counting the lookup as a hit or a miss
+     */
+    int patternDatabaseDepth(RubiksCube cube) {
+        int depth = PatternDatabase.getDepth(cube);
+        if (depth >= 0) {
+            this.pdbHits++;
+        } else {
+            this.pdbMisses++;
+        }
+        return depth;
+    }
+
+    /**
+     * The solving moves of a pattern database hit, in a Reconstruction event
+     */
+    String reconstruct(RubiksCube cube) {
+        SolverEvents.Reconstruction event = new SolverEvents.Reconstruction();
+        event.begin();
+        String moves = PatternDatabase.solvingMoves(cube);
+        event.moves = moves == null ? 0 : BatchSolver.moveCount(moves);
+        event.commit();
+        return moves;
+    }
+
+    void applyMove(RubiksCube cube, int move) {
+        if ((this.moveCalls++ & SAMPLE_MASK) != 0) {
+            cube.applyMove(move);
+            return;
+        }
+        long start = System.nanoTime();
+        cube.applyMove(move);
+        this.moveNanos += (System.nanoTime() - start) << SAMPLE_SHIFT;
+    }
+
+    void applyMoves(RubiksCube cube, String moves) {
+        if ((this.moveCalls++ & SAMPLE_MASK) != 0) {
+            cube.applyMoves(moves);
+            return;
+        }
+        long start = System.nanoTime();
+        cube.applyMoves(moves);
+        this.moveNanos += (System.nanoTime() - start) << SAMPLE_SHIFT;
+    }
+
+    /**
+     * Adds the counters of a worker; times are summed over threads, and
+     * peaks too, since every worker has its own open and closed sets
+     */
+    void add(SearchStats other) {
+        this.expanded += other.expanded;
+        this.generated += other.generated;
+        this.duplicates += other.duplicates;
+        this.pdbHits += other.pdbHits;
+        this.pdbMisses += other.pdbMisses;
+        this.heuristicNanos += other.heuristicNanos;
+        this.moveNanos += other.moveNanos;
+        this.peakOpen += other.peakOpen;
+        this.peakClosed += other.peakClosed;
+    }
+
+    void sizes(int open, int closed) {
+        this.peakOpen = Math.max(this.peakOpen, open);
+        this.peakClosed = Math.max(this.peakClosed, closed);
+    }
+
+    void tables(StateTable closed, NodeArena nodes) {
+        this.arenaNodes = nodes.size();
+        this.closedBytesPerState = closed.bytesPerEntry();
+        this.closedAverageProbe = closed.averageProbeLength();
+        this.closedMaxProbe = closed.maxProbeLength();
+    }
+
+    boolean progressDue() {
+        return this.progressInterval > 0 && this.expanded % this.progressInterval == 0;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if the JVM
+     *         does not report it
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    String toJson(String engine, Solver.Result result) {
+        String counters = this.expanded == 0 ? ""
+                : String.format(Locale.ROOT,
+                        " \"expanded\": %d, \"generated\": %d, \"duplicates\": %d, \"pdbHits\": %d,"
+                                + " \"pdbMisses\": %d, \"heuristicMillis\": %.3f, \"moveMillis\": %.3f,"
+                                + " \"peakOpen\": %d, \"peakClosed\": %d,",
+                        this.expanded, this.generated, this.duplicates, this.pdbHits, this.pdbMisses,
+                        this.heuristicNanos / 1e6, this.moveNanos / 1e6, this.peakOpen, this.peakClosed);
+        if (this.arenaNodes > 0) {
+            counters += String.format(Locale.ROOT,
+                    " \"arenaNodes\": %d, \"closedBytesPerState\": %.1f, \"closedAvgProbe\": %.2f,"
+                            + " \"closedMaxProbe\": %d,",
+                    this.arenaNodes, this.closedBytesPerState, this.closedAverageProbe, this.closedMaxProbe);
+        }
+        return String.format(Locale.ROOT,
+                "{\"engine\": \"%s\", \"solved\": %b, \"length\": %d, \"steps\": %d,%s \"allocatedBytes\": %d,"
+                        + " \"wallMillis\": %.3f}",
+                engine, result.solution != null,
+                result.solution == null ? 0 : BatchSolver.moveCount(result.solution), result.steps, counters,
+                this.allocatedBytes, this.wallNanos / 1e6);
+    }
+}
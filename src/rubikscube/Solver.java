@@ -1,216 +1,350 @@
 package rubikscube;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.lang.invoke.MethodHandles;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToIntFunction;
 
 public class Solver {
-	static class State {
-		RubiksCube cube;
-		String solution;
-		int g;
-		int h;
-
-		private int getDepth(String solution) {
-			int depth = 0;
-			if (solution == null || solution.isEmpty()) {
-				return depth;
-			}
-			// remove the first |
-			String[] solutionMoves = solution.substring(1).split("\\|");
-			depth = solutionMoves.length;
-			return depth;
-		}
+	static final int STEP_LIMIT = 7000;
 
-		State(RubiksCube cube, String solution) {
-			this.cube = cube;
-			this.solution = solution;
-			// if 3 same move in a row, then it is 1 move
-			this.g = getDepth(solution); // current depth
+	// heuristic used by every engine, chosen with --heuristic
+	static ToIntFunction<RubiksCube> heuristic = CubeEstimate::estimate;
 
-			// 使用启发函数 (包含PDB查询)
-			this.h = CubeEstimate.estimate(cube);
-		}
+	// A* open list, chosen with --open, --tie-break and --open-dedup
+	static boolean bucketOpenList = false;
+	static BucketQueue.TieBreak tieBreak = BucketQueue.TieBreak.HIGH_G;
+	static boolean openDedup = false;
+	// A* visited set keyed by symmetry class instead of state, chosen with --symmetry
+	static boolean symmetryDedup = false;
+
+	/**
+	 * Outcome of one search: the |-separated solution, or null with the reason
+	 */
+	static class Result {
+		final String solution;
+		final long steps;
+		final String failure;
 
-		int f() {
-			return g + h;
+		Result(String solution, long steps, String failure) {
+			this.solution = solution;
+			this.steps = steps;
+			this.failure = failure;
 		}
 	}
 
-	private static boolean isOppositeFace(char f1, char f2) {
-		return (f1 == 'F' && f2 == 'B') || (f1 == 'B' && f2 == 'F') ||
-				(f1 == 'L' && f2 == 'R') || (f1 == 'R' && f2 == 'L') ||
-				(f1 == 'U' && f2 == 'D') || (f1 == 'D' && f2 == 'U');
+	// A* move order, as the move strings were tried before moves had codes
+	private static final int[] ASTAR_MOVES = moveCodes("F", "B", "L", "R", "U", "D", "FF", "BB", "LL", "RR", "UU",
+			"DD", "FFF", "LLL", "RRR", "UUU", "DDD", "BBB");
+
+	private static int[] moveCodes(String... names) {
+		int[] codes = new int[names.length];
+		for (int i = 0; i < names.length; i++) {
+			codes[i] = RubiksCube.moveCode(names[i]);
+		}
+		return codes;
 	}
 
 	public static void main(String[] args) {
 		long startTime = System.currentTimeMillis();
-		System.out.println("Initializing Pattern Database...");
-		PatternDatabase.initialize();
-		System.out.println("Pattern Database initialized");
+		// the search starts at once and uses whatever layers are already published
+		System.out.println("Initializing Pattern Database in the background...");
+		PatternDatabase.initializeAsync();
 		System.out.println("--------------------------------");
-		if (args.length < 2) {
+		String engine = "astar";
+		int maxLength = TwoPhaseSolver.DEFAULT_MAX_LENGTH;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int splitDepth = ParallelIDAStar.DEFAULT_SPLIT_DEPTH;
+		int progress = 0;
+		List<String> fileNames = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith("--engine=")) {
+				engine = arg.substring("--engine=".length());
+			} else if (arg.startsWith("--threads=")) {
+				threads = Integer.parseInt(arg.substring("--threads=".length()));
+			} else if (arg.startsWith("--split-depth=")) {
+				splitDepth = Integer.parseInt(arg.substring("--split-depth=".length()));
+			} else if (arg.startsWith("--max-length=")) {
+				maxLength = Integer.parseInt(arg.substring("--max-length=".length()));
+			} else if (arg.startsWith("--heuristic=")) {
+				String name = arg.substring("--heuristic=".length());
+				if (!selectHeuristic(name)) {
+					System.out.println("Unknown heuristic: " + name);
+					return;
+				}
+			} else if (arg.startsWith("--open=")) {
+				String name = arg.substring("--open=".length());
+				if (!name.equals("heap") && !name.equals("bucket")) {
+					System.out.println("Unknown open list: " + name);
+					return;
+				}
+				bucketOpenList = name.equals("bucket");
+			} else if (arg.startsWith("--tie-break=")) {
+				String name = arg.substring("--tie-break=".length());
+				try {
+					tieBreak = BucketQueue.TieBreak.valueOf(name.toUpperCase().replace('-', '_'));
+				} catch (IllegalArgumentException e) {
+					System.out.println("Unknown tie-break: " + name);
+					return;
+				}
+			} else if (arg.equals("--open-dedup")) {
+				openDedup = true;
+			} else if (arg.equals("--symmetry")) {
+				symmetryDedup = true;
+			} else if (arg.startsWith("--progress=")) {
+				progress = Integer.parseInt(arg.substring("--progress=".length()));
+			} else if (arg.equals("--report-heuristic")) {
+				CubeEstimate.reportKorfSources = true;
+			} else {
+				fileNames.add(arg);
+			}
+		}
+		if (fileNames.size() < 2) {
 			System.out.println("File names are not specified");
-			System.out.println(
-					"usage: java " + MethodHandles.lookup().lookupClass().getName() + " input_file output_file");
+			System.out.println("usage: java " + MethodHandles.lookup().lookupClass().getName()
+					+ " [--engine=astar|hda|ida|parallel-ida|twophase|thistlethwaite]"
+					+ " [--threads=N] [--split-depth=N] [--max-length=N] [--heuristic=default|corners|korf] [--report-heuristic]"
+					+ " [--open=heap|bucket] [--tie-break=fifo|lifo|high-g] [--open-dedup] [--symmetry] [--progress=N]"
+					+ " input_file output_file");
 			return;
 		}
-		String solution = "";
-		Map<String, Integer> visited = new HashMap<>();
-		// openSet is a priority queue to store the states to be explored and sorted by
-		// the f(n) base on State class
-		PriorityQueue<State> openSet = new PriorityQueue<>(
-				Comparator.comparingInt(State::f) // sort order by f(n)
-		);
-		String inputFileName = args[0];
-		String outputFileName = args[1];
-		Integer steps = 0;
+		String inputFileName = fileNames.get(0);
+		String outputFileName = fileNames.get(1);
 		try {
+			SolverEvents.Parse parse = new SolverEvents.Parse();
+			parse.begin();
 			RubiksCube cube = new RubiksCube(inputFileName);
-			State initialState = new State(cube, "");
+			parse.file = inputFileName;
+			parse.commit();
+
+			Result result;
+			SearchStats stats = new SearchStats(progress);
+			SolverEvents.Search search = new SolverEvents.Search();
+			search.engine = engine;
+			search.begin();
+			stats.start();
+			switch (engine) {
+				case "hda": {
+					ParallelAStar hda = new ParallelAStar(threads, STEP_LIMIT, stats);
+					result = hda.solve(cube);
+					System.out.println("Expansions per worker:" + hda.workerReport());
+					if (result.solution == null) {
+						System.out.println("Step limit hit after " + result.steps
+								+ " steps, falling back to Thistlethwaite solver");
+						result = new ThistlethwaiteSolver().solve(cube);
+					}
+					break;
+				}
+				case "parallel-ida": {
+					ForkJoinPool pool = new ForkJoinPool(threads);
+					ParallelIDAStar parallel = new ParallelIDAStar(IDAStar.DEFAULT_MAX_DEPTH, splitDepth, pool, stats);
+					result = parallel.solve(cube);
+					pool.shutdown();
+					System.out.println("Nodes per thread:" + parallel.threadReport());
+					break;
+				}
+				default:
+					result = solveWith(engine, cube, maxLength, stats, System.out);
+					if (result == null) {
+						System.out.println("Unknown engine: " + engine);
+						return;
+					}
+			}
+			stats.finish();
+			search.steps = result.steps;
+			search.expanded = stats.expanded;
+			search.solved = result.solution != null;
+			search.commit();
+			if (result.solution != null) {
+				// solution string without |
+				String formatedSolution = result.solution.replaceAll("\\|", "");
+				System.out.println("Solution found: " + formatedSolution + " in " + result.steps + " steps");
+			} else {
+				System.out.println(result.failure);
+			}
+			System.out.println("Orginal Solution: " + (result.solution == null ? "" : result.solution));
+			System.out.println("Pattern Database depth available: " + PatternDatabase.availableDepth());
+			System.out.println("Search stats: " + stats.toJson(engine, result));
+			if (CubeEstimate.reportKorfSources) {
+				System.out.println("Heuristic bound sources: " + CubeEstimate.korfSourceReport());
+			}
+		} catch (IOException e) {
+			System.out.println("Error reading file");
+			return;
+		} catch (IncorrectFormatException e) {
+			System.out.println("Error in file format: " + e.getMessage());
+			return;
+		}
+		// solve...
+		// File output = new File(args[1]);
+		System.out.println("Solving... -> " + outputFileName);
+		long endTime = System.currentTimeMillis();
+		// convert to seconds
+		System.out.println("Time taken: " + (endTime - startTime) + " milliseconds");
+	}
+
+	/**
+	 * Sets the heuristic used by every engine
+	 *
+	 * @return false if name is not default, corners or korf
+	 */
+	static boolean selectHeuristic(String name) {
+		switch (name) {
+			case "default":
+				heuristic = CubeEstimate::estimate;
+				return true;
+			case "corners":
+				heuristic = CubeEstimate::estimateCornerPDB;
+				return true;
+			case "korf":
+				heuristic = CubeEstimate::estimateKorf;
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Runs one of the single-threaded engines on cube; astar falls back to
+	 * Thistlethwaite when it hits the step limit. Progress and fallback
+	 * messages go to log.
+	 *
+	 * @return the result, or null if engine is not astar, ida, twophase or
+	 *         thistlethwaite
+	 */
+	static Result solveWith(String engine, RubiksCube cube, int maxLength, SearchStats stats, PrintStream log)
+			throws IncorrectFormatException {
+		switch (engine) {
+			case "astar": {
+				Result result = solveAStar(cube, stats);
+				if (result.solution == null) {
+					log.println("Step limit hit after " + result.steps
+							+ " steps, falling back to Thistlethwaite solver");
+					result = new ThistlethwaiteSolver().solve(cube);
+				}
+				return result;
+			}
+			case "ida":
+				return new IDAStar(IDAStar.DEFAULT_MAX_DEPTH, stats, log).solve(cube);
+			case "twophase":
+				return new TwoPhaseSolver(maxLength).solve(cube);
+			case "thistlethwaite":
+				return new ThistlethwaiteSolver().solve(cube);
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @return the open list of node indexes selected by --open: a binary heap
+	 *         ordered by f, or a bucket queue with the selected tie-break and,
+	 *         with --open-dedup, a best-g index per state
+	 */
+	static NodeArena.OpenList newOpenList(NodeArena nodes) {
+		if (!bucketOpenList) {
+			return new NodeArena.Heap(nodes); // sort order by f(n)
+		}
+		return new BucketQueue(nodes, tieBreak, openDedup);
+	}
+
+	/**
+	 * @return the key of cube in the A* visited set: its symmetry class with
+	 *         --symmetry, since rotations and reflections of a state are as far
+	 *         from solved, otherwise the state itself
+	 */
+	private static long visitedKey(RubiksCube cube) {
+		return symmetryDedup ? CubeSymmetry.canonicalKey(cube) : cube.stateKey();
+	}
+
+	/**
+	 * Best-first A* from cube, giving up after STEP_LIMIT expansions. Nodes
+	 * live in a NodeArena; only the expanded node and one child at a time are
+	 * unpacked into cubes.
+	 */
+	static Result solveAStar(RubiksCube cube, SearchStats stats) {
+		StateTable visited = new StateTable();
+		NodeArena nodes = new NodeArena();
+		// openSet is a priority queue of node indexes sorted by the f(n) of the node
+		NodeArena.OpenList openSet = newOpenList(nodes);
+		RubiksCube current = new RubiksCube();
+		RubiksCube child = new RubiksCube();
+		int steps = 0;
+		try {
 			// insert the initial state for start the search
-			openSet.add(initialState);
-			visited.put(cube.toString(), 0);
-			while (!openSet.isEmpty()) {
+			openSet.offer(nodes.add(cube, NodeArena.NO_PARENT, -1, 0, stats.heuristic(cube)));
+			visited.put(visitedKey(cube), 0);
+			int node;
+			// get the state with the lowest f(n) and remove it from the openSet
+			while ((node = openSet.poll()) >= 0) {
 				steps++;
-				if (steps > 7000) {
-					System.out.println("Steps limit reached");
-					break;
+				if (steps > STEP_LIMIT) {
+					return new Result(null, steps, "Steps limit reached");
 				}
 
-				State current = openSet.poll(); // get the state with the lowest f(n) and remove it from the openSet
-				String currentStateStr = current.cube.toString();
+				int g = nodes.g(node);
+				nodes.cube(node, current);
+				long currentStateKey = visitedKey(current);
 
 				// 【优化】提前检查：如果这个状态已经被更短的路径访问过，跳过
 				// 这避免了处理队列中的重复状态
-				if (visited.containsKey(currentStateStr) &&
-						visited.get(currentStateStr) < current.g) {
+				int visitedDepth = visited.get(currentStateKey);
+				if (visitedDepth >= 0 && visitedDepth < g) {
+					stats.duplicates++;
 					continue;
 				}
 
-				if (steps % 100 == 0) {
-					System.out.println("Steps: " + steps + " Queue size: " + openSet.size());
-					System.out.println("Current solution: " + current.solution);
-					System.out.println("Current g: " + current.g);
-					System.out.println("Current h: " + current.h);
-					System.out.println("Current f: " + current.f());
+				stats.expanded++;
+				stats.sizes(openSet.size(), visited.size());
+				if (stats.progressDue()) {
+					System.out.println("Steps: " + steps + " Queue size: " + openSet.size() + " g: " + g
+							+ " h: " + nodes.h(node) + " f: " + nodes.f(node) + " Current solution: "
+							+ nodes.path(node));
 				}
 
 				// 【优化】检查是否在 Pattern Database 中
-				PatternDatabase.PDBEntry pdbEntry = PatternDatabase.lookup(current.cube);
-				if (pdbEntry != null) {
-					// 在 PDB 中找到！直接拼接路径
-					if (pdbEntry.path.isEmpty()) {
-						solution = current.solution; // 已经是 solved state
-					} else {
-						// 拼接 PDB 中的路径
-						String[] pdbMoves = pdbEntry.path.split("\\|");
-						StringBuilder sb = new StringBuilder(current.solution);
-						for (String move : pdbMoves) {
-							if (!move.isEmpty()) {
-								sb.append("|").append(move);
-							}
-						}
-						solution = sb.toString();
-					}
-					String formatedSolution = solution.replaceAll("\\|", "");
-					System.out.println("Solution found: " + formatedSolution + " in " + steps + " steps");
-					break;
+				String pdbMoves = stats.patternDatabaseDepth(current) >= 0 ? stats.reconstruct(current) : null;
+				if (pdbMoves != null) {
+					// 在 PDB 中找到！直接拼接还原路径，路径只在这里由父节点链重建一次
+					String solution = nodes.path(node);
+					return new Result(pdbMoves.isEmpty() ? solution : solution + "|" + pdbMoves, steps, null);
 				}
 
-				if (current.cube.isSolved()) {
-					solution = current.solution;
-					// solution string without |
-					String formatedSolution = solution.replaceAll("\\|", "");
-					System.out.println("Solution found: " + formatedSolution + " in " + steps + " steps");
-					break;
+				if (current.isSolved()) {
+					return new Result(nodes.path(node), steps, null);
 				}
 
 				// 【关键优化】标记当前状态为已扩展，防止重复扩展
-				visited.put(currentStateStr, current.g);
-				// create 6 deep clone of the cube
-				String[] moves = { "F", "B", "L", "R", "U", "D", "FF", "BB", "LL", "RR", "UU", "DD", "FFF", "LLL",
-						"RRR", "UUU", "DDD", "BBB" };
-				for (int i = 0; i < moves.length; i++) {
-					// bypass 4 same move in a row
-					// for example if previous move is F, then next move can not be FFF.
-					// if previous move is FFF, then next move can not be F.
-					// if previous move is FF, then next move can not be FF. etc.
-					String previousMove = "";
-					if (current.solution != null && !current.solution.isEmpty()) {
-						String[] solutionMoves = current.solution.split("\\|");
-						previousMove = solutionMoves[solutionMoves.length - 1];
-					}
-					// check all by pass cases
-					if (!previousMove.isEmpty() && previousMove != null) {
-						String currentTwoMoves = previousMove + moves[i];
-						// if currentTwoMoves is same letter 4 times, then skip
-						if (currentTwoMoves.length() >= 4) {
-							char firstChar = currentTwoMoves.charAt(0);
-							boolean allSame = true;
-							for (int j = 0; j < 4; j++) {
-								if (currentTwoMoves.charAt(currentTwoMoves.length() - 4 + j) != firstChar) {
-									allSame = false;
-									break;
-								}
-							}
-							if (allSame) {
-								continue;
-							}
-						}
-						// 【剪枝2】避免对面来回操作 (F-B-F, F-BB-F, FF-B-F 等)
-						char currentFace = moves[i].charAt(0);
-						// 从路径末尾往前找第一个不同字母的位置
-						int lastDifferentPos = -1;
-						for (int j = previousMove.length() - 1; j >= 0; j--) {
-							if (previousMove.charAt(j) != previousMove.charAt(previousMove.length() - 1)) {
-								lastDifferentPos = j;
-								break;
-							}
-						}
-						// 如果找到了不同的字母，检查是否是对面
-						if (lastDifferentPos >= 0) {
-							char prevFace = previousMove.charAt(lastDifferentPos);
-							char lastFace = previousMove.charAt(previousMove.length() - 1);
-							// 检查模式: prevFace - lastFace - currentFace
-							// 如果 prevFace 和 currentFace 相同，且 lastFace 是对面，则剪枝
-							if (prevFace == currentFace && isOppositeFace(prevFace, lastFace)) {
-								continue;
-							}
-						}
+				visited.put(currentStateKey, g);
+				// only canonical sequences: no face twice in a row, opposite faces in one order
+				int successors = MoveAutomaton.successors(nodes.move(node));
+				for (int move : ASTAR_MOVES) {
+					if (!MoveAutomaton.allowed(successors, move)) {
+						continue;
 					}
 
-					String newSolution = current.solution + "|" + moves[i];
-					RubiksCube clone = current.cube.deepClone();
-					clone.applyMoves(moves[i]);
-					String nextState = clone.toString();
-					int nextDepth = current.g + 1;
+					child.copyFrom(current);
+					stats.applyMove(child, move);
+					stats.generated++;
+					long nextState = visitedKey(child);
+					int nextDepth = g + 1;
 					// if the next state is not visited or the depth is less than the visited depth
 					// then add the next state to the openSet
-					if (!visited.containsKey(nextState) ||
-							visited.get(nextState) > nextDepth) {
+					int nextVisitedDepth = visited.get(nextState);
+					if (nextVisitedDepth < 0 || nextVisitedDepth > nextDepth) {
 						visited.put(nextState, nextDepth);
-						State nextStateObj = new State(clone, newSolution);
-						openSet.add(nextStateObj);
+						openSet.offer(nodes.add(child, node, move, nextDepth, stats.heuristic(child)));
+					} else {
+						stats.duplicates++;
 					}
 				}
 			}
-			System.out.println("Orginal Solution: " + solution);
-		} catch (IOException e) {
-			System.out.println("Error reading file");
-			return;
-		} catch (IncorrectFormatException e) {
-			System.out.println("Error in file format");
-			return;
+			return new Result(null, steps, "Search space exhausted");
+		} finally {
+			stats.duplicates += openSet.dropped();
+			stats.tables(visited, nodes);
 		}
-		// solve...
-		// File output = new File(args[1]);
-		System.out.println("Solving... -> " + outputFileName);
-		long endTime = System.currentTimeMillis();
-		// convert to seconds
-		System.out.println("Time taken: " + (endTime - startTime) + " milliseconds");
 	}
 }
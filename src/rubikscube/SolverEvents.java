@@ -0,0 +1,64 @@
+package rubikscube;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events for the phases of a solve. They cost nothing unless
+ * a recording is running, e.g. java -XX:StartFlightRecording=filename=solve.jfr
+ */
+final class SolverEvents {
+    private static final String CATEGORY = "Rubik's Cube";
+
+    private SolverEvents() {
+    }
+
+    @Name("rubikscube.PatternDatabaseInit")
+    @Label("Pattern Database Init")
+    @Description("Pattern database mapped from its file or generated")
+    @Category(CATEGORY)
+    static final class PatternDatabaseInit extends Event {
+        @Label("Depth")
+        int depth;
+        @Label("States")
+        int states;
+        @Label("Mapped")
+        boolean mapped;
+    }
+
+    @Name("rubikscube.Parse")
+    @Label("Parse")
+    @Description("Scramble file read into a cube")
+    @Category(CATEGORY)
+    static final class Parse extends Event {
+        @Label("File")
+        String file;
+    }
+
+    @Name("rubikscube.Search")
+    @Label("Search")
+    @Description("One engine run from the scrambled cube to a solution or failure")
+    @Category(CATEGORY)
+    static final class Search extends Event {
+        @Label("Engine")
+        String engine;
+        @Label("Steps")
+        long steps;
+        @Label("Expanded")
+        long expanded;
+        @Label("Solved")
+        boolean solved;
+    }
+
+    @Name("rubikscube.Reconstruction")
+    @Label("Reconstruction")
+    @Description("Solving moves rebuilt from the pattern database at a goal hit")
+    @Category(CATEGORY)
+    static final class Reconstruction extends Event {
+        @Label("Moves")
+        int moves;
+    }
+}
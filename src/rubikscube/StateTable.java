@@ -0,0 +1,222 @@
+package rubikscube;
+
+/**
+ * Closed set for the searches: maps a 64-bit state key to a small depth.
+ * Keys live in a long[] and depths in a parallel byte[], so an entry costs
+ * 9 bytes per slot instead of a boxed Map entry with a String key.
+ * Open addressing with linear probing. When the table grows, the old arrays
+ * are kept read-only and moved a few slots per operation, so no single put
+ * pays for rehashing every entry.
+ *
+ * Memory per state is 9 bytes divided by the occupancy: 12 to 24 bytes
+ * between growths at MAX_LOAD 0.75, and up to 36 while the old arrays of a
+ * growth are still being migrated; about 20.5 on average while filling up to
+ * 2M random keys. That misses a flat 20 bytes per state; a higher load
+ * factor would save about a byte at the cost of probes 40% longer or more.
+ * The A* visited set ends at about 12.6 bytes per state at the step limit.
+ * The default capacity is small, so a short search costs kilobytes; callers
+ * that know their size pass it to the constructor.
+ */
+public class StateTable {
+    private static final long EMPTY = 0L;
+    private static final float MAX_LOAD = 0.75f;
+    // old slots moved per operation while growing, enough to finish before
+    // the new table reaches its own threshold
+    private static final int MIGRATE_STEP = 8;
+
+    private long[] keys;
+    private byte[] depths;
+    private int mask;
+    private int threshold;
+
+    // previous arrays while a growth is in progress, null otherwise
+    private long[] oldKeys;
+    private byte[] oldDepths;
+    private int migrateIndex;
+
+    // key 0 marks an empty slot, so it is stored on the side
+    private boolean hasZeroKey;
+    private byte zeroDepth;
+
+    private int size;
+    private long probes;
+    private long operations;
+    private int maxProbe;
+
+    public StateTable() {
+        this(1 << 10);
+    }
+
+    public StateTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.depths = new byte[capacity];
+        this.mask = capacity - 1;
+        this.threshold = (int) (capacity * MAX_LOAD);
+    }
+
+    // Fibonacci hashing: the top bits of key * golden ratio pick the slot
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - Integer.bitCount(mask)));
+    }
+
+    /**
+     * @return the slot holding key in the given arrays, or -1
+     */
+    private int find(long[] table, int tableMask, long key) {
+        int i = slot(key, tableMask);
+        int probe = 1;
+        while (table[i] != EMPTY) {
+            if (table[i] == key) {
+                recordProbe(probe);
+                return i;
+            }
+            i = (i + 1) & tableMask;
+            probe++;
+        }
+        recordProbe(probe);
+        return -1;
+    }
+
+    private void recordProbe(int probe) {
+        this.probes += probe;
+        this.operations++;
+        if (probe > this.maxProbe) {
+            this.maxProbe = probe;
+        }
+    }
+
+    /**
+     * @return the depth stored for key, or -1 if absent
+     */
+    public int get(long key) {
+        if (key == EMPTY) {
+            return this.hasZeroKey ? this.zeroDepth : -1;
+        }
+        int i = find(this.keys, this.mask, key);
+        if (i >= 0) {
+            return this.depths[i];
+        }
+        if (this.oldKeys != null) {
+            i = find(this.oldKeys, this.oldKeys.length - 1, key);
+            if (i >= 0) {
+                return this.oldDepths[i];
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(long key) {
+        return get(key) >= 0;
+    }
+
+    /**
+     * Stores depth for key, replacing any previous depth
+     */
+    public void put(long key, int depth) {
+        if (key == EMPTY) {
+            if (!this.hasZeroKey) {
+                this.size++;
+            }
+            this.hasZeroKey = true;
+            this.zeroDepth = (byte) depth;
+            return;
+        }
+        if (this.oldKeys != null) {
+            migrate();
+        }
+        int i = slot(key, this.mask);
+        int probe = 1;
+        while (this.keys[i] != EMPTY) {
+            if (this.keys[i] == key) {
+                recordProbe(probe);
+                this.depths[i] = (byte) depth;
+                return;
+            }
+            i = (i + 1) & this.mask;
+            probe++;
+        }
+        recordProbe(probe);
+        // a key still waiting in the old arrays is not a new entry
+        if (this.oldKeys == null || find(this.oldKeys, this.oldKeys.length - 1, key) < 0) {
+            this.size++;
+        }
+        this.keys[i] = key;
+        this.depths[i] = (byte) depth;
+        if (this.size > this.threshold && this.oldKeys == null) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        this.oldKeys = this.keys;
+        this.oldDepths = this.depths;
+        this.migrateIndex = 0;
+        allocate(this.keys.length << 1);
+    }
+
+    private void migrate() {
+        int end = Math.min(this.migrateIndex + MIGRATE_STEP, this.oldKeys.length);
+        for (int j = this.migrateIndex; j < end; j++) {
+            long key = this.oldKeys[j];
+            if (key == EMPTY) {
+                continue;
+            }
+            // entries updated since the growth already sit in the new arrays
+            int i = slot(key, this.mask);
+            while (this.keys[i] != EMPTY && this.keys[i] != key) {
+                i = (i + 1) & this.mask;
+            }
+            if (this.keys[i] == EMPTY) {
+                this.keys[i] = key;
+                this.depths[i] = this.oldDepths[j];
+            }
+        }
+        this.migrateIndex = end;
+        if (end == this.oldKeys.length) {
+            this.oldKeys = null;
+            this.oldDepths = null;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int capacity() {
+        return this.keys.length;
+    }
+
+    public double occupancy() {
+        return (double) this.size / this.keys.length;
+    }
+
+    public double averageProbeLength() {
+        return this.operations == 0 ? 0 : (double) this.probes / this.operations;
+    }
+
+    public int maxProbeLength() {
+        return this.maxProbe;
+    }
+
+    /**
+     * @return bytes of slot arrays per stored state, including a pending growth
+     */
+    public double bytesPerEntry() {
+        long bytes = 9L * this.keys.length;
+        if (this.oldKeys != null) {
+            bytes += 9L * this.oldKeys.length;
+        }
+        return this.size == 0 ? 0 : (double) bytes / this.size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d states, capacity %d, occupancy %.2f, avg probe %.2f, max probe %d, %.1f bytes/state",
+                size(), capacity(), occupancy(), averageProbeLength(), maxProbeLength(), bytesPerEntry());
+    }
+}
@@ -0,0 +1,185 @@
+package rubikscube;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Precomputed primitive arrays kept as files in the table directory, so each
+ * JVM reads them with one bulk read instead of recomputing them. A file holds
+ * a magic number, the format version, the number of arrays, then for each
+ * array its element size, its length and its contents, big-endian. Every
+ * precomputed table except the mapped pattern database goes through here.
+ */
+final class TableFiles {
+    private static final int MAGIC = 0x54424C53; // "TBLS"
+    // bump when the layout of any table changes, so stale files are rebuilt
+    private static final int VERSION = 2;
+
+    private TableFiles() {
+    }
+
+    static File file(String name) {
+        return new File(PatternDatabase.TABLE_DIR, name + ".tbl");
+    }
+
+    /**
+     * Fills arrays (long[], int[], short[] or byte[]) from the named file
+     *
+     * @return false if the file is missing or does not hold arrays of exactly
+     *         these types and lengths
+     */
+    static boolean read(String name, Object... arrays) {
+        return read(name, arrays.length, arrays) != null;
+    }
+
+    /**
+     * Reads every array of the named file, allocated at the stored lengths
+     *
+     * @return the arrays, or null if the file is missing or unreadable
+     */
+    static Object[] read(String name) {
+        return read(name, -1, null);
+    }
+
+    /**
+     * @param count  the number of arrays expected, -1 for any
+     * @param arrays the arrays to fill, or null to allocate them
+     */
+    private static Object[] read(String name, int count, Object[] arrays) {
+        File file = file(name);
+        if (!file.isFile()) {
+            return null;
+        }
+        ByteBuffer data;
+        try {
+            data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            System.out.println("Could not read " + file + ", regenerating: " + e.getMessage());
+            return null;
+        }
+        if (data.remaining() < 12 || data.getInt() != MAGIC || data.getInt() != VERSION) {
+            return null;
+        }
+        int stored = data.getInt();
+        if (stored < 0 || (count >= 0 && stored != count)) {
+            return null;
+        }
+        if (arrays == null) {
+            arrays = new Object[stored];
+        }
+        for (int i = 0; i < stored; i++) {
+            if (data.remaining() < 5) {
+                return null;
+            }
+            int elementSize = data.get();
+            int length = data.getInt();
+            if (length < 0 || data.remaining() < (long) elementSize * length) {
+                return null;
+            }
+            if (arrays[i] == null) {
+                arrays[i] = allocate(elementSize, length);
+            }
+            Object array = arrays[i];
+            if (array == null || elementSize != elementSize(array) || length != length(array)) {
+                return null;
+            }
+            if (array instanceof long[]) {
+                data.asLongBuffer().get((long[]) array);
+            } else if (array instanceof int[]) {
+                data.asIntBuffer().get((int[]) array);
+            } else if (array instanceof short[]) {
+                data.asShortBuffer().get((short[]) array);
+            } else {
+                data.get((byte[]) array, 0, length);
+                continue;
+            }
+            data.position(data.position() + elementSize * length);
+        }
+        return arrays;
+    }
+
+    /**
+     * Writes arrays to the named file, through a temporary file renamed at the
+     * end; failures are reported and otherwise ignored
+     */
+    static void write(String name, Object... arrays) {
+        File file = file(name);
+        long size = 12;
+        for (Object array : arrays) {
+            size += 5 + (long) elementSize(array) * length(array);
+        }
+        ByteBuffer data = ByteBuffer.allocate((int) size);
+        data.putInt(MAGIC).putInt(VERSION).putInt(arrays.length);
+        for (Object array : arrays) {
+            data.put((byte) elementSize(array)).putInt(length(array));
+            if (array instanceof long[]) {
+                data.asLongBuffer().put((long[]) array);
+            } else if (array instanceof int[]) {
+                data.asIntBuffer().put((int[]) array);
+            } else if (array instanceof short[]) {
+                data.asShortBuffer().put((short[]) array);
+            } else {
+                data.put((byte[]) array);
+                continue;
+            }
+            data.position(data.position() + elementSize(array) * length(array));
+        }
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(tmp.toPath(), data.array());
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            tmp.delete();
+            System.out.println("Could not save " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static Object allocate(int elementSize, int length) {
+        switch (elementSize) {
+            case 8:
+                return new long[length];
+            case 4:
+                return new int[length];
+            case 2:
+                return new short[length];
+            case 1:
+                return new byte[length];
+            default:
+                return null;
+        }
+    }
+
+    private static int elementSize(Object array) {
+        if (array instanceof long[]) {
+            return 8;
+        }
+        if (array instanceof int[]) {
+            return 4;
+        }
+        if (array instanceof short[]) {
+            return 2;
+        }
+        if (array instanceof byte[]) {
+            return 1;
+        }
+        throw new IllegalArgumentException("unsupported table type " + array.getClass());
+    }
+
+    private static int length(Object array) {
+        if (array instanceof long[]) {
+            return ((long[]) array).length;
+        }
+        if (array instanceof int[]) {
+            return ((int[]) array).length;
+        }
+        if (array instanceof short[]) {
+            return ((short[]) array).length;
+        }
+        return ((byte[]) array).length;
+    }
+}
@@ -0,0 +1,46 @@
+package rubikscube;
+
+import java.io.File;
+
+/**
+ * Build step that precomputes every static table into the table directory,
+ * so that solver runs only load them. compileJavafile.sh runs it with
+ * -Drubikscube.tables=out/rubikscube/tables, which puts the tables on the
+ * classpath where PatternDatabase.TABLE_DIR finds them by default.
+ *
+ * usage: java rubikscube.TableGenerator [--skip-korf]
+ */
+public class TableGenerator {
+    public static void main(String[] args) {
+        boolean korf = true;
+        for (String arg : args) {
+            if (arg.equals("--skip-korf")) {
+                korf = false;
+            } else {
+                System.out.println("usage: java rubikscube.TableGenerator [--skip-korf]");
+                return;
+            }
+        }
+        long start = System.currentTimeMillis();
+        System.out.println("Writing tables to " + new File(PatternDatabase.TABLE_DIR).getAbsolutePath());
+
+        PatternDatabase.initialize();
+        // the static initializers load or generate and save their tables
+        new TwoPhaseSolver();
+        new ThistlethwaiteSolver();
+        if (korf) {
+            CornerPatternDatabase.getInstance();
+            EdgePatternDatabase.getInstances();
+        }
+
+        File[] files = new File(PatternDatabase.TABLE_DIR).listFiles();
+        long bytes = 0;
+        if (files != null) {
+            for (File file : files) {
+                bytes += file.length();
+            }
+        }
+        System.out.printf("Tables ready: %d files, %.1f MB in %d ms%n", files == null ? 0 : files.length,
+                bytes / 1e6, System.currentTimeMillis() - start);
+    }
+}
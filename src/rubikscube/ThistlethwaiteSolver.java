@@ -0,0 +1,267 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thistlethwaite's algorithm: the cube is taken through the nested subgroups
+ * G0 = <all moves>, G1 = <U, D, R, L, F2, B2>, G2 = <U, D, R2, L2, F2, B2>,
+ * G3 = <U2, D2, R2, L2, F2, B2> and G4 = {solved}. For each stage a table
+ * holds the exact distance of every coset of the next subgroup, so a stage is
+ * solved by stepping to any neighbour one move closer; there is no search.
+ * The tables are built by breadth-first search and kept in the table
+ * directory next to the pattern databases.
+ */
+public class ThistlethwaiteSolver {
+    private static final int STAGES = 4;
+
+    // moves of G0 .. G3 that keep the cube inside the current group
+    private static final int[][] STAGE_MOVES = {
+            { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17 },
+            { 1, 4, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17 },
+            { 1, 4, 7, 10, 12, 13, 14, 15, 16, 17 },
+            { 1, 4, 7, 10, 13, 16 } };
+
+    // edges of the M slice (between L and R); the other U/D edges are in S
+    private static final boolean[] M_SLICE_EDGE = { false, true, false, true, false, true, false, true, false,
+            false, false, false };
+    private static final int FACTORIAL_12 = 479001600;
+
+    // the 96 corner permutations reachable with half turns only
+    private static final byte[][] HALF_TURN_CORNERS = halfTurnCorners();
+
+    private static final StateTable[] TABLES = new StateTable[STAGES];
+
+    static {
+        for (int stage = 0; stage < STAGES; stage++) {
+            TABLES[stage] = loadOrGenerate(stage);
+        }
+    }
+
+    private static byte[][] halfTurnCorners() {
+        List<byte[]> group = new ArrayList<>();
+        boolean[] seen = new boolean[CornerPatternDatabase.PERMUTATIONS];
+        CubieCube identity = new CubieCube();
+        group.add(identity.cp);
+        seen[identity.getCornerPermutation()] = true;
+        for (int i = 0; i < group.size(); i++) {
+            for (int move : STAGE_MOVES[3]) {
+                CubieCube cube = new CubieCube();
+                cube.cp = group.get(i).clone();
+                cube.cornerMultiply(CubieCube.MOVE_CUBE[move]);
+                int rank = cube.getCornerPermutation();
+                if (!seen[rank]) {
+                    seen[rank] = true;
+                    group.add(cube.cp);
+                }
+            }
+        }
+        return group.toArray(new byte[0][]);
+    }
+
+    /**
+     * Identifies the coset of the next subgroup that cube belongs to. Moves
+     * of that subgroup applied before cube (h * cube) leave the id unchanged,
+     * and every coset gets a distinct id.
+     */
+    private static long stageId(int stage, CubieCube cube) {
+        switch (stage) {
+            case 0:
+                return cube.getFlip();
+            case 1:
+                return cube.getTwist() * 495L + cube.getSlice();
+            case 2: {
+                int min = Integer.MAX_VALUE;
+                byte[] perm = new byte[8];
+                for (byte[] h : HALF_TURN_CORNERS) {
+                    for (int i = 0; i < 8; i++) {
+                        perm[i] = h[cube.cp[i]];
+                    }
+                    min = Math.min(min, CubieCube.rank(perm));
+                }
+                int mask = 0;
+                for (int i = 0; i < 8; i++) {
+                    if (M_SLICE_EDGE[cube.ep[i]]) {
+                        mask |= 1 << i;
+                    }
+                }
+                return ((long) min << 8) | mask;
+            }
+            default:
+                return cube.getCornerPermutation() * (long) FACTORIAL_12 + CubieCube.rank(cube.ep);
+        }
+    }
+
+    /**
+     * @return a cube in the current group whose stage id is id
+     */
+    private static CubieCube representative(int stage, long id) {
+        CubieCube cube = new CubieCube();
+        switch (stage) {
+            case 0:
+                cube.setFlip((int) id);
+                break;
+            case 1:
+                cube.setTwist((int) (id / 495));
+                cube.setSlice((int) (id % 495));
+                break;
+            case 2: {
+                cube.setCornerPermutation((int) (id >>> 8));
+                int m = 1;
+                int s = 0;
+                for (int i = 0; i < 8; i++) {
+                    if ((id >>> i & 1) != 0) {
+                        cube.ep[i] = (byte) m;
+                        m += 2;
+                    } else {
+                        cube.ep[i] = (byte) s;
+                        s += 2;
+                    }
+                }
+                // G2 needs corner and edge permutations of equal parity
+                if (CubieCube.parity(cube.cp) != CubieCube.parity(cube.ep)) {
+                    cube.ep[8] = 9;
+                    cube.ep[9] = 8;
+                }
+                break;
+            }
+            default:
+                cube.setCornerPermutation((int) (id / FACTORIAL_12));
+                CubieCube.unrank((int) (id % FACTORIAL_12), cube.ep);
+                break;
+        }
+        return cube;
+    }
+
+    /**
+     * Breadth-first search over the cosets, starting from the next subgroup
+     * itself
+     *
+     * @return the ids found at each depth
+     */
+    private static List<long[]> generate(int stage) {
+        long start = System.currentTimeMillis();
+        StateTable table = new StateTable();
+        List<long[]> levels = new ArrayList<>();
+        long[] frontier = { stageId(stage, new CubieCube()) };
+        table.put(frontier[0], 0);
+        while (frontier.length > 0) {
+            levels.add(frontier);
+            long[] next = new long[1024];
+            int count = 0;
+            for (long id : frontier) {
+                CubieCube cube = representative(stage, id);
+                for (int move : STAGE_MOVES[stage]) {
+                    CubieCube child = cube.deepClone();
+                    child.applyMove(move);
+                    long childId = stageId(stage, child);
+                    if (table.contains(childId)) {
+                        continue;
+                    }
+                    table.put(childId, levels.size());
+                    if (count == next.length) {
+                        next = Arrays.copyOf(next, count * 2);
+                    }
+                    next[count++] = childId;
+                }
+            }
+            frontier = Arrays.copyOf(next, count);
+        }
+        System.out.println("Thistlethwaite stage " + (stage + 1) + ": " + table.size() + " cosets, max depth "
+                + (levels.size() - 1) + " (" + (System.currentTimeMillis() - start) / 1000.0 + "s)");
+        return levels;
+    }
+
+    /**
+     * Loads the stage table from the table directory, generating and saving it
+     * on first use. The file holds the number of ids at each depth, then the
+     * ids themselves in depth order.
+     */
+    private static StateTable loadOrGenerate(int stage) {
+        String name = "thistlethwaite" + (stage + 1);
+        int[] counts;
+        long[] ids;
+        Object[] stored = TableFiles.read(name);
+        if (validLevels(stored)) {
+            counts = (int[]) stored[0];
+            ids = (long[]) stored[1];
+        } else {
+            List<long[]> levels = generate(stage);
+            counts = new int[levels.size()];
+            ids = new long[levels.stream().mapToInt(level -> level.length).sum()];
+            int size = 0;
+            for (int depth = 0; depth < levels.size(); depth++) {
+                long[] level = levels.get(depth);
+                counts[depth] = level.length;
+                System.arraycopy(level, 0, ids, size, level.length);
+                size += level.length;
+            }
+            TableFiles.write(name, counts, ids);
+        }
+        StateTable table = new StateTable(ids.length);
+        int next = 0;
+        for (int depth = 0; depth < counts.length; depth++) {
+            for (int i = 0; i < counts[depth]; i++) {
+                table.put(ids[next++], depth);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return whether stored holds non-negative counts per depth and exactly
+     *         as many ids as they add up to
+     */
+    private static boolean validLevels(Object[] stored) {
+        if (stored == null || stored.length != 2 || !(stored[0] instanceof int[])
+                || !(stored[1] instanceof long[])) {
+            return false;
+        }
+        long total = 0;
+        for (int count : (int[]) stored[0]) {
+            if (count < 0) {
+                return false;
+            }
+            total += count;
+        }
+        return total == ((long[]) stored[1]).length;
+    }
+
+    /**
+     * Walks each stage table down to depth 0; steps counts the table lookups
+     */
+    Solver.Result solve(RubiksCube start) throws IncorrectFormatException {
+        CubieCube cube = CubieCube.fromFacelets(start);
+        StringBuilder sb = new StringBuilder();
+        long lookups = 0;
+        for (int stage = 0; stage < STAGES; stage++) {
+            StateTable table = TABLES[stage];
+            int depth = table.get(stageId(stage, cube));
+            lookups++;
+            while (depth > 0) {
+                CubieCube next = null;
+                for (int move : STAGE_MOVES[stage]) {
+                    CubieCube child = cube.deepClone();
+                    child.applyMove(move);
+                    lookups++;
+                    if (table.get(stageId(stage, child)) == depth - 1) {
+                        sb.append("|").append(RubiksCube.MOVE_NAMES[move]);
+                        next = child;
+                        break;
+                    }
+                }
+                if (next == null) {
+                    return new Solver.Result(null, lookups, "Thistlethwaite table for stage " + (stage + 1)
+                            + " is inconsistent");
+                }
+                cube = next;
+                depth--;
+            }
+            if (depth < 0) {
+                return new Solver.Result(null, lookups, "Cube is not in the group for stage " + (stage + 1));
+            }
+        }
+        return new Solver.Result(sb.toString(), lookups, null);
+    }
+}
@@ -0,0 +1,259 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Two-phase (Kociemba style) solver for fast, non-optimal solutions.
+ * Phase 1 reaches the subgroup <U, D, R2, L2, F2, B2>, where corner twist,
+ * edge flip and the E-slice positions are all solved. Phase 2 solves the
+ * cube inside that subgroup. Each phase is an IDA* over coordinate move
+ * tables with two pruning tables; all tables come from CubieCube.MOVE_CUBE,
+ * so they share the move definitions of RubiksCube.
+ */
+public class TwoPhaseSolver {
+    static final int DEFAULT_MAX_LENGTH = 30;
+
+    private static final int N_MOVE = RubiksCube.MOVE_COUNT;
+    private static final int N_TWIST = CornerPatternDatabase.TWISTS;
+    private static final int N_FLIP = 2048;
+    private static final int N_SLICE = 495;
+    private static final int N_CORNER_PERM = CornerPatternDatabase.PERMUTATIONS;
+    private static final int N_LAYER_EDGE_PERM = 40320;
+    private static final int N_SLICE_PERM = 24;
+
+    // move codes allowed in phase 2: U, U2, U', D, D2, D', R2, L2, F2, B2
+    private static final int[] PHASE2_MOVES = { 12, 13, 14, 15, 16, 17, 7, 10, 1, 4 };
+    private static final int N_PHASE2_MOVE = PHASE2_MOVES.length;
+    private static final boolean[] IS_PHASE2_MOVE = new boolean[N_MOVE];
+
+    // phase 1 move tables, [coordinate * 18 + move]
+    private static final short[] FLIP_MOVE = new short[N_FLIP * N_MOVE];
+    private static final short[] SLICE_MOVE = new short[N_SLICE * N_MOVE];
+    // phase 2 move tables, [coordinate * 10 + phase 2 move index]
+    private static final int[] CORNER_PERM_MOVE = new int[N_CORNER_PERM * N_PHASE2_MOVE];
+    private static final int[] LAYER_EDGE_MOVE = new int[N_LAYER_EDGE_PERM * N_PHASE2_MOVE];
+    private static final byte[] SLICE_PERM_MOVE = new byte[N_SLICE_PERM * N_PHASE2_MOVE];
+
+    // pruning tables: exact distances of coordinate pairs
+    private static final byte[] TWIST_SLICE_PRUNE = new byte[N_TWIST * N_SLICE];
+    private static final byte[] FLIP_SLICE_PRUNE = new byte[N_FLIP * N_SLICE];
+    private static final byte[] CORNER_SLICE_PRUNE = new byte[N_CORNER_PERM * N_SLICE_PERM];
+    private static final byte[] EDGE_SLICE_PRUNE = new byte[N_LAYER_EDGE_PERM * N_SLICE_PERM];
+
+    static {
+        for (int move : PHASE2_MOVES) {
+            IS_PHASE2_MOVE[move] = true;
+        }
+        if (!TableFiles.read("twophase", FLIP_MOVE, SLICE_MOVE, CORNER_PERM_MOVE, LAYER_EDGE_MOVE, SLICE_PERM_MOVE,
+                TWIST_SLICE_PRUNE, FLIP_SLICE_PRUNE, CORNER_SLICE_PRUNE, EDGE_SLICE_PRUNE)) {
+            generateTables();
+            TableFiles.write("twophase", FLIP_MOVE, SLICE_MOVE, CORNER_PERM_MOVE, LAYER_EDGE_MOVE, SLICE_PERM_MOVE,
+                    TWIST_SLICE_PRUNE, FLIP_SLICE_PRUNE, CORNER_SLICE_PRUNE, EDGE_SLICE_PRUNE);
+        }
+    }
+
+    private static void generateTables() {
+        CubieCube cube = new CubieCube();
+        for (int i = 0; i < N_FLIP; i++) {
+            for (int m = 0; m < N_MOVE; m++) {
+                cube.setFlip(i);
+                cube.edgeMultiply(CubieCube.MOVE_CUBE[m]);
+                FLIP_MOVE[i * N_MOVE + m] = (short) cube.getFlip();
+            }
+        }
+        cube = new CubieCube();
+        for (int i = 0; i < N_SLICE; i++) {
+            for (int m = 0; m < N_MOVE; m++) {
+                cube.setSlice(i);
+                cube.edgeMultiply(CubieCube.MOVE_CUBE[m]);
+                SLICE_MOVE[i * N_MOVE + m] = (short) cube.getSlice();
+            }
+        }
+        for (int i = 0; i < N_CORNER_PERM; i++) {
+            for (int k = 0; k < N_PHASE2_MOVE; k++) {
+                CORNER_PERM_MOVE[i * N_PHASE2_MOVE + k] = CornerPatternDatabase.PERMUTATION_MOVE[i * N_MOVE
+                        + PHASE2_MOVES[k]];
+            }
+        }
+        cube = new CubieCube();
+        for (int i = 0; i < N_LAYER_EDGE_PERM; i++) {
+            for (int k = 0; k < N_PHASE2_MOVE; k++) {
+                cube.setLayerEdgePermutation(i);
+                cube.setSlicePermutation(0);
+                cube.edgeMultiply(CubieCube.MOVE_CUBE[PHASE2_MOVES[k]]);
+                LAYER_EDGE_MOVE[i * N_PHASE2_MOVE + k] = cube.getLayerEdgePermutation();
+            }
+        }
+        cube = new CubieCube();
+        for (int i = 0; i < N_SLICE_PERM; i++) {
+            for (int k = 0; k < N_PHASE2_MOVE; k++) {
+                cube.setLayerEdgePermutation(0);
+                cube.setSlicePermutation(i);
+                cube.edgeMultiply(CubieCube.MOVE_CUBE[PHASE2_MOVES[k]]);
+                SLICE_PERM_MOVE[i * N_PHASE2_MOVE + k] = (byte) cube.getSlicePermutation();
+            }
+        }
+        int[] sliceMove = toInt(SLICE_MOVE);
+        fillPruning(TWIST_SLICE_PRUNE, N_SLICE, toInt(CornerPatternDatabase.TWIST_MOVE), sliceMove, N_MOVE);
+        fillPruning(FLIP_SLICE_PRUNE, N_SLICE, toInt(FLIP_MOVE), sliceMove, N_MOVE);
+        fillPruning(CORNER_SLICE_PRUNE, N_SLICE_PERM, CORNER_PERM_MOVE, toInt(SLICE_PERM_MOVE), N_PHASE2_MOVE);
+        fillPruning(EDGE_SLICE_PRUNE, N_SLICE_PERM, LAYER_EDGE_MOVE, toInt(SLICE_PERM_MOVE), N_PHASE2_MOVE);
+    }
+
+    private static int[] toInt(short[] table) {
+        int[] result = new int[table.length];
+        for (int i = 0; i < table.length; i++) {
+            result[i] = table[i];
+        }
+        return result;
+    }
+
+    private static int[] toInt(byte[] table) {
+        int[] result = new int[table.length];
+        for (int i = 0; i < table.length; i++) {
+            result[i] = table[i];
+        }
+        return result;
+    }
+
+    /**
+     * Breadth-first search over the pair (a, b) stored at a * n2 + b, where
+     * the move tables are indexed [coordinate * moves + move]
+     */
+    private static void fillPruning(byte[] prune, int n2, int[] move1, int[] move2, int moves) {
+        Arrays.fill(prune, (byte) -1);
+        prune[0] = 0;
+        int known = 1;
+        for (int depth = 0; known < prune.length; depth++) {
+            for (int i = 0; i < prune.length; i++) {
+                if (prune[i] != depth) {
+                    continue;
+                }
+                int a = (i / n2) * moves;
+                int b = (i % n2) * moves;
+                for (int m = 0; m < moves; m++) {
+                    int next = move1[a + m] * n2 + move2[b + m];
+                    if (prune[next] < 0) {
+                        prune[next] = (byte) (depth + 1);
+                        known++;
+                    }
+                }
+            }
+        }
+    }
+
+    private final int maxLength;
+    // the solution so far, phase 1 then phase 2 moves
+    private final int[] moves;
+    private CubieCube start;
+    private int phase1Length;
+    private int solutionLength;
+    private long nodes;
+
+    public TwoPhaseSolver() {
+        this(DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param maxLength longest total solution accepted
+     */
+    public TwoPhaseSolver(int maxLength) {
+        this.maxLength = maxLength;
+        this.moves = new int[Math.max(maxLength, 0) + 1];
+    }
+
+    Solver.Result solve(RubiksCube cube) throws IncorrectFormatException {
+        this.start = CubieCube.fromFacelets(cube);
+        this.nodes = 0;
+        int twist = this.start.getTwist();
+        int flip = this.start.getFlip();
+        int slice = this.start.getSlice();
+        for (int depth = 0; depth <= this.maxLength; depth++) {
+            this.phase1Length = depth;
+            if (phase1(twist, flip, slice, depth, -1)) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < this.solutionLength; i++) {
+                    sb.append("|").append(RubiksCube.MOVE_NAMES[this.moves[i]]);
+                }
+                return new Solver.Result(sb.toString(), this.nodes, null);
+            }
+        }
+        return new Solver.Result(null, this.nodes, "No solution within " + this.maxLength + " moves");
+    }
+
+    private static int phase1Bound(int twist, int flip, int slice) {
+        return Math.max(TWIST_SLICE_PRUNE[twist * N_SLICE + slice], FLIP_SLICE_PRUNE[flip * N_SLICE + slice]);
+    }
+
+    /**
+     * Searches phase 1 paths of exactly togo more moves; each one that ends
+     * in the subgroup is handed to phase 2
+     */
+    private boolean phase1(int twist, int flip, int slice, int togo, int lastMove) {
+        this.nodes++;
+        if (togo == 0) {
+            // a phase 1 path ending in a phase 2 move was already tried shorter
+            return twist == 0 && flip == 0 && slice == 0
+                    && (lastMove < 0 || !IS_PHASE2_MOVE[lastMove]) && startPhase2();
+        }
+        if (phase1Bound(twist, flip, slice) > togo) {
+            return false;
+        }
+        int depth = this.phase1Length - togo;
+        int successors = MoveAutomaton.successors(lastMove);
+        for (int m = 0; m < N_MOVE; m++) {
+            if (!MoveAutomaton.allowed(successors, m)) {
+                continue;
+            }
+            this.moves[depth] = m;
+            if (phase1(CornerPatternDatabase.TWIST_MOVE[twist * N_MOVE + m], FLIP_MOVE[flip * N_MOVE + m],
+                    SLICE_MOVE[slice * N_MOVE + m], togo - 1, m)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean startPhase2() {
+        CubieCube cube = this.start.deepClone();
+        for (int i = 0; i < this.phase1Length; i++) {
+            cube.applyMove(this.moves[i]);
+        }
+        int cornerPerm = cube.getCornerPermutation();
+        int edgePerm = cube.getLayerEdgePermutation();
+        int slicePerm = cube.getSlicePermutation();
+        int lastMove = this.phase1Length > 0 ? this.moves[this.phase1Length - 1] : -1;
+        for (int length = 0; this.phase1Length + length <= this.maxLength; length++) {
+            if (phase2(cornerPerm, edgePerm, slicePerm, length, this.phase1Length, lastMove)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean phase2(int cornerPerm, int edgePerm, int slicePerm, int togo, int depth, int lastMove) {
+        this.nodes++;
+        int bound = Math.max(CORNER_SLICE_PRUNE[cornerPerm * N_SLICE_PERM + slicePerm],
+                EDGE_SLICE_PRUNE[edgePerm * N_SLICE_PERM + slicePerm]);
+        if (bound > togo) {
+            return false;
+        }
+        if (togo == 0) {
+            this.solutionLength = depth;
+            return true;
+        }
+        int successors = MoveAutomaton.successors(lastMove);
+        for (int k = 0; k < N_PHASE2_MOVE; k++) {
+            int m = PHASE2_MOVES[k];
+            if (!MoveAutomaton.allowed(successors, m)) {
+                continue;
+            }
+            this.moves[depth] = m;
+            if (phase2(CORNER_PERM_MOVE[cornerPerm * N_PHASE2_MOVE + k], LAYER_EDGE_MOVE[edgePerm * N_PHASE2_MOVE + k],
+                    SLICE_PERM_MOVE[slicePerm * N_PHASE2_MOVE + k], togo - 1, depth + 1, m)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}